@@ -0,0 +1,275 @@
+package mandelbrotset;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A zoom path to be rendered to numbered PNG files without the illustrator, read from a job file.
+ * A job file lists jobs one after another. Each job starts with a line naming it and giving the size of its frames and
+ * the engine modes to render them with, followed by a line for each zoom along its path:
+ * <pre>
+ * # comments and blank lines are ignored
+ * job seahorse 1280x720 start=1 precision=auto symmetry=on keyframes=off boundary=off
+ * zoom -0.75 0.1 10 30
+ * zoom -0.743643887037151 0.131825904205330 100 60
+ * </pre>
+ * A zoom line gives the point zoomed in on, the amount it magnifies by and its number of frames. Every setting after the
+ * size is optional and defaults to the values shown. Precision is auto, float, double or perturbation; auto never chooses float.
+ * The boundary can only be highlighted where double precision suffices, as the distance estimate has no perturbation kernel,
+ * so a job that highlights it may not use perturbation or zoom deep enough for auto to choose it.
+ */
+public class BatchJob
+{
+	/**
+	 * The width of the region of the complex plane shown at a magnification of 1, the same as the illustrator's starting view
+	 */
+	private static final double STARTING_X_RANGE = 4;
+	
+	public final String name;
+	
+	// The size of the frames in pixels
+	public final int width;
+	public final int height;
+	
+	// The magnification the first zoom starts from
+	public final double startMagnification;
+	
+	// The precision used by the kernel, or null if it is chosen for each frame
+	public final KernelPrecision precision;
+	
+	public final boolean exploitSymmetry;
+	public final boolean keyframeZoom;
+	public final boolean highlightBoundary;
+	
+	// The zooms along the path, in order
+	public final List<Session.ZoomStep> zoomPath;
+	
+	/**
+	 * Constructor
+	 * @param name The name of the job, which names the directory its frames are written to
+	 * @param width The width of the frames in pixels
+	 * @param height The height of the frames in pixels
+	 * @param startMagnification The magnification the first zoom starts from
+	 * @param precision The precision used by the kernel, or null to choose it for each frame
+	 * @param exploitSymmetry Whether rows mirrored across the real axis are copied rather than rendered twice
+	 * @param keyframeZoom Whether each zoom is rebuilt from keyframes instead of rendering every frame
+	 * @param highlightBoundary Whether points within a pixel of the edge of the set are given the maximum number of iterations
+	 * @param zoomPath The zooms along the path, in order
+	 */
+	public BatchJob(String name, int width, int height, double startMagnification, KernelPrecision precision,
+			boolean exploitSymmetry, boolean keyframeZoom, boolean highlightBoundary, List<Session.ZoomStep> zoomPath)
+	{
+		this.name = name;
+		this.width = width;
+		this.height = height;
+		this.startMagnification = startMagnification;
+		this.precision = precision;
+		this.exploitSymmetry = exploitSymmetry;
+		this.keyframeZoom = keyframeZoom;
+		this.highlightBoundary = highlightBoundary;
+		this.zoomPath = Collections.unmodifiableList(zoomPath);
+	}
+	
+	/**
+	 * Returns the total number of frames along the path
+	 * @return The number of frames
+	 */
+	public int getFrameCount()
+	{
+		return getFirstFrame(zoomPath.size());
+	}
+	
+	/**
+	 * Returns the number of the first frame of a zoom, counting the frames of the whole path from 0
+	 * @param step The index of the zoom along the path
+	 * @return The number of the frame
+	 */
+	public int getFirstFrame(int step)
+	{
+		int frame = 0;
+		for (int i = 0; i < step; i++)
+		{
+			frame += zoomPath.get(i).framesPerZoom;
+		}
+		return frame;
+	}
+	
+	/**
+	 * Works out the regions shown by the frames of a zoom, the same way the illustrator does but with square pixels
+	 * @param step The index of the zoom along the path
+	 * @return The region of each frame of the zoom
+	 */
+	public Viewport[] getViewports(int step)
+	{
+		Session.ZoomStep zoom = zoomPath.get(step);
+		Viewport[] viewports = new Viewport[zoom.framesPerZoom];
+		for (int zoomFrame = 1; zoomFrame <= zoom.framesPerZoom; zoomFrame++)
+		{
+			double magnification = zoom.startMagnification * Math.pow(zoom.zoomInterval, (double) zoomFrame / zoom.framesPerZoom);
+			double xRange = STARTING_X_RANGE / magnification;
+			viewports[zoomFrame - 1] = new Viewport(zoom.centerX, zoom.centerY, xRange, xRange * height / width, width, height,
+					MandelbrotSetIllustrator.calcIterations(magnification));
+		}
+		return viewports;
+	}
+	
+	/**
+	 * Reads the jobs listed in a job file
+	 * @param file The job file
+	 * @return The jobs, in the order they are listed
+	 * @throws IOException If the file could not be read or is not a valid job file
+	 */
+	public static List<BatchJob> read(File file) throws IOException
+	{
+		List<BatchJob> jobs = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new FileReader(file)))
+		{
+			String[] header = null;
+			double magnification = 1;
+			List<Session.ZoomStep> zoomPath = new ArrayList<>();
+			int lineNumber = 0;
+			
+			for (String line; (line = reader.readLine()) != null; )
+			{
+				lineNumber++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) continue;
+				
+				String[] words = line.split("\\s+");
+				try
+				{
+					if (words[0].equals("job"))
+					{
+						if (header != null)
+						{
+							jobs.add(createJob(header, zoomPath));
+						}
+						if (words.length < 3) throw new IllegalArgumentException("a job needs a name and a size");
+						header = words;
+						zoomPath = new ArrayList<>();
+						magnification = Double.parseDouble(getSetting(words, "start", "1"));
+					}
+					else if (words[0].equals("zoom"))
+					{
+						if (header == null) throw new IllegalArgumentException("a zoom must follow a job");
+						if (words.length != 5) throw new IllegalArgumentException("a zoom needs a point, an amount and a number of frames");
+						
+						double zoomInterval = Double.parseDouble(words[3]);
+						int framesPerZoom = Integer.parseInt(words[4]);
+						if (zoomInterval <= 0 || framesPerZoom <= 0) throw new IllegalArgumentException("the amount and the number of frames must be greater than 0");
+						
+						zoomPath.add(new Session.ZoomStep(Double.parseDouble(words[1]), Double.parseDouble(words[2]), magnification,
+								zoomInterval, framesPerZoom, MandelbrotSetIllustrator.calcIterations(magnification * zoomInterval)));
+						magnification *= zoomInterval;
+					}
+					else
+					{
+						throw new IllegalArgumentException("unknown line \"" + words[0] + "\"");
+					}
+				}
+				catch (IllegalArgumentException e)
+				{
+					throw new IOException(file.getName() + " line " + lineNumber + ": " + e.getMessage());
+				}
+			}
+			
+			if (header != null)
+			{
+				try
+				{
+					jobs.add(createJob(header, zoomPath));
+				}
+				catch (IllegalArgumentException e)
+				{
+					throw new IOException(file.getName() + ": " + e.getMessage());
+				}
+			}
+		}
+		return jobs;
+	}
+	
+	/**
+	 * Creates a job from its header line and its zooms
+	 * @param header The words of the line that started the job
+	 * @param zoomPath The zooms that followed it
+	 * @return The job
+	 * @throws IllegalArgumentException If a setting is not valid
+	 */
+	private static BatchJob createJob(String[] header, List<Session.ZoomStep> zoomPath)
+	{
+		String name = header[1];
+		if (!name.matches("[\\w.-]+")) throw new IllegalArgumentException("job names may only contain letters, digits, '.', '-' and '_'");
+		if (zoomPath.isEmpty()) throw new IllegalArgumentException("job " + name + " has no zooms");
+		
+		String[] size = header[2].split("x");
+		if (size.length != 2) throw new IllegalArgumentException("the size of job " + name + " must be given as widthxheight");
+		int width = Integer.parseInt(size[0]);
+		int height = Integer.parseInt(size[1]);
+		if (width <= 0 || height <= 0) throw new IllegalArgumentException("the size of job " + name + " must be greater than 0");
+		
+		String precisionName = getSetting(header, "precision", "auto");
+		KernelPrecision precision = precisionName.equals("auto") ? null : KernelPrecision.valueOf(precisionName.toUpperCase());
+		
+		BatchJob job = new BatchJob(name, width, height, Double.parseDouble(getSetting(header, "start", "1")), precision,
+				getSwitch(header, "symmetry", true), getSwitch(header, "keyframes", false), getSwitch(header, "boundary", false), zoomPath);
+		if (job.highlightBoundary && job.usesPerturbation())
+		{
+			throw new IllegalArgumentException("job " + name + " cannot highlight the boundary beyond the reach of double precision");
+		}
+		return job;
+	}
+	
+	/**
+	 * Returns whether any frame of the job is rendered with the perturbation kernel
+	 * @return TRUE if perturbation is used
+	 */
+	private boolean usesPerturbation()
+	{
+		if (precision != null) return precision == KernelPrecision.PERTURBATION;
+		
+		for (int step = 0; step < zoomPath.size(); step++)
+		{
+			for (Viewport viewport : getViewports(step))
+			{
+				if (KernelPrecision.select(viewport) == KernelPrecision.PERTURBATION) return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Finds a setting given as name=value among the words of a line
+	 * @param words The words of the line
+	 * @param name The name of the setting
+	 * @param defaultValue The value if the setting is not given
+	 * @return The value of the setting
+	 */
+	private static String getSetting(String[] words, String name, String defaultValue)
+	{
+		for (String word : words)
+		{
+			if (word.startsWith(name + "=")) return word.substring(name.length() + 1);
+		}
+		return defaultValue;
+	}
+	
+	/**
+	 * Finds a setting that is either on or off
+	 * @param words The words of the line
+	 * @param name The name of the setting
+	 * @param defaultValue The value if the setting is not given
+	 * @return TRUE if the setting is on
+	 * @throws IllegalArgumentException If the setting is neither on nor off
+	 */
+	private static boolean getSwitch(String[] words, String name, boolean defaultValue)
+	{
+		String value = getSetting(words, name, defaultValue ? "on" : "off");
+		if (!value.equals("on") && !value.equals("off")) throw new IllegalArgumentException(name + " must be on or off");
+		return value.equals("on");
+	}
+}
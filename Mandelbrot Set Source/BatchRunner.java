@@ -0,0 +1,379 @@
+package mandelbrotset;
+
+import java.awt.Color;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Renders the jobs of a job file to numbered PNG files, a few jobs at a time, and reports how they are getting on.
+ * The frames of each job are written to a directory named after the job. Each frame is written to a temporary file and
+ * renamed once it is complete, so a run that was stopped or crashed can be started again with the same job file and output
+ * directory: frames that already exist are not rendered again, and finished jobs are skipped.
+ * The state and throughput of every job are printed and written to a status file in the output directory as the jobs progress.
+ * See BatchJob for the format of a job file. Run it without a display, for example with -Djava.awt.headless=true.
+ * Usage: BatchRunner job-file [output directory] [jobs at once]
+ */
+public class BatchRunner
+{
+	private static final String DEFAULT_DIRECTORY = "batch-output";
+	private static final String STATUS_FILE = "status.txt";
+	private static final String FRAME_NAME_FORMAT = "frame-%05d.png";
+	private static final String TEMPORARY_SUFFIX = ".part";
+	
+	/**
+	 * The time in seconds between reports of the state of the jobs
+	 */
+	private static final int REPORT_INTERVAL = 10;
+	
+	private final List<JobStatus> statuses = new ArrayList<>();
+	private final File outputDirectory;
+	private final int concurrentJobs;
+	private final int threadsPerJob;
+	private final ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("Batch Reporter"));
+	private long startTime;
+	
+	/**
+	 * Constructor
+	 * @param jobs The jobs to run, in order
+	 * @param outputDirectory The directory the frames of each job are written under
+	 * @param concurrentJobs The largest number of jobs rendered at once. The cores are shared equally between them.
+	 */
+	public BatchRunner(List<BatchJob> jobs, File outputDirectory, int concurrentJobs)
+	{
+		for (BatchJob job : jobs)
+		{
+			statuses.add(new JobStatus(job));
+		}
+		this.outputDirectory = outputDirectory;
+		this.concurrentJobs = concurrentJobs;
+		threadsPerJob = Math.max(1, Runtime.getRuntime().availableProcessors() / concurrentJobs);
+	}
+	
+	/**
+	 * Runs every job, reporting their state as they progress. A job that fails does not stop the others.
+	 * @return TRUE if every job finished
+	 * @throws IOException If the output directory could not be created
+	 * @throws InterruptedException If the thread was interrupted while waiting for the jobs
+	 */
+	public boolean run() throws IOException, InterruptedException
+	{
+		if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) throw new IOException("Could not create " + outputDirectory);
+		
+		startTime = System.nanoTime();
+		ExecutorService jobExecutor = Executors.newFixedThreadPool(concurrentJobs, new DaemonThreadFactory("Batch Job"));
+		for (final JobStatus status : statuses)
+		{
+			jobExecutor.execute(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					runJob(status);
+				}
+			});
+		}
+		
+		reporter.scheduleAtFixedRate(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				report();
+			}
+		}, REPORT_INTERVAL, REPORT_INTERVAL, TimeUnit.SECONDS);
+		
+		jobExecutor.shutdown();
+		try
+		{
+			jobExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+		}
+		finally
+		{
+			reporter.shutdownNow();
+			jobExecutor.shutdownNow();
+		}
+		report();
+		
+		for (JobStatus status : statuses)
+		{
+			if (status.state != State.DONE) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Renders the frames of a job that do not exist yet
+	 * @param status The job and its state
+	 */
+	private void runJob(JobStatus status)
+	{
+		BatchJob job = status.job;
+		File directory = new File(outputDirectory, job.name);
+		status.startTime = System.nanoTime();
+		
+		FrameRenderer renderer = new FrameRenderer(threadsPerJob);
+		renderer.setPrecision(job.precision);
+		renderer.setExploitSymmetry(job.exploitSymmetry);
+		renderer.setHighlightBoundary(job.highlightBoundary);
+		try
+		{
+			if (!directory.isDirectory() && !directory.mkdirs()) throw new IOException("Could not create " + directory);
+			
+			for (int frame = 0; frame < job.getFrameCount(); frame++)
+			{
+				if (getFrameFile(directory, frame).exists())
+				{
+					status.framesResumed.incrementAndGet();
+				}
+			}
+			status.state = State.RUNNING;
+			
+			for (int step = 0; step < job.zoomPath.size(); step++)
+			{
+				renderZoom(job, step, directory, renderer, status);
+			}
+			status.state = State.DONE;
+		}
+		catch (IOException | RuntimeException e)
+		{
+			Throwable cause = (e instanceof UncheckedIOException) ? e.getCause() : e;
+			status.error = cause.toString();
+			status.state = State.FAILED;
+		}
+		finally
+		{
+			renderer.shutdown();
+			status.endTime = System.nanoTime();
+		}
+	}
+	
+	/**
+	 * Renders the frames of one zoom of a job that do not exist yet and writes them out
+	 * @param job The job
+	 * @param step The index of the zoom along the job's path
+	 * @param directory The directory the frames of the job are written to
+	 * @param renderer The renderer set up for the job
+	 * @param status The state of the job
+	 * @throws IOException If a frame could not be written
+	 */
+	private void renderZoom(BatchJob job, int step, final File directory, FrameRenderer renderer, final JobStatus status) throws IOException
+	{
+		Viewport[] viewports = job.getViewports(step);
+		int firstFrame = job.getFirstFrame(step);
+		
+		//the number of each frame that still has to be rendered, and its region
+		final List<Integer> frameNumbers = new ArrayList<>();
+		List<Viewport> missingViewports = new ArrayList<>();
+		for (int i = 0; i < viewports.length; i++)
+		{
+			if (!getFrameFile(directory, firstFrame + i).exists())
+			{
+				frameNumbers.add(firstFrame + i);
+				missingViewports.add(viewports[i]);
+			}
+		}
+		if (frameNumbers.isEmpty()) return;
+		
+		if (job.keyframeZoom)
+		{
+			KeyframeZoom keyframeZoom = new KeyframeZoom(viewports);
+			Viewport[] keyframeViewports = keyframeZoom.getKeyframeViewports();
+			Frame[] keyframes = new Frame[keyframeViewports.length];
+			Frame previousFrame = null;
+			for (int k = 0; k < keyframes.length; k++)
+			{
+				keyframes[k] = previousFrame = renderer.render(keyframeViewports[k], previousFrame);
+			}
+			
+			for (int frameNumber : frameNumbers)
+			{
+				writeFrame(keyframeZoom.reconstruct(frameNumber - firstFrame, keyframes), getFrameFile(directory, frameNumber));
+				status.frameWritten();
+			}
+			return;
+		}
+		
+		renderer.renderAll(missingViewports, null, new FrameRenderer.FrameListener()
+		{
+			@Override
+			public void frameRendered(int index, Frame frame)
+			{
+				try
+				{
+					writeFrame(frame, getFrameFile(directory, frameNumbers.get(index)));
+				}
+				catch (IOException e)
+				{
+					throw new UncheckedIOException(e);
+				}
+				status.frameWritten();
+			}
+		});
+	}
+	
+	/**
+	 * Writes a frame to a PNG file, first under a temporary name so that the file only ever exists complete
+	 * @param frame The frame
+	 * @param file The file to write
+	 * @throws IOException If the file could not be written
+	 */
+	private static void writeFrame(Frame frame, File file) throws IOException
+	{
+		Viewport viewport = frame.viewport;
+		Color[] colors = MandelbrotSetIllustrator.createMandelbrotColors(viewport.maxIterations);
+		int[] pixels = new int[frame.iterations.length];
+		for (int i = 0; i < pixels.length; i++)
+		{
+			pixels[i] = colors[frame.iterations[i]].getRGB();
+		}
+		
+		File temporary = new File(file.getPath() + TEMPORARY_SUFFIX);
+		try (StreamingPngWriter writer = new StreamingPngWriter(new BufferedOutputStream(new FileOutputStream(temporary)), viewport.width, viewport.height))
+		{
+			writer.writeRows(pixels, viewport.height);
+		}
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	private static File getFrameFile(File directory, int frame)
+	{
+		return new File(directory, String.format(FRAME_NAME_FORMAT, frame));
+	}
+	
+	/**
+	 * Prints the state of every job and the throughput of the whole run, and writes the same report to the status file
+	 */
+	private synchronized void report()
+	{
+		StringBuilder report = new StringBuilder();
+		long framesWritten = 0;
+		long pixelsWritten = 0;
+		for (JobStatus status : statuses)
+		{
+			report.append(status).append('\n');
+			framesWritten += status.framesWritten.get();
+			pixelsWritten += status.pixelsWritten.get();
+		}
+		
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+		report.append(String.format("total: %d frames in %.0f s, %.2f frames/s, %.2f megapixels/s%n",
+				framesWritten, seconds, framesWritten / seconds, pixelsWritten / seconds / 1e6));
+		System.out.print(report);
+		
+		File statusFile = new File(outputDirectory, STATUS_FILE);
+		File temporary = new File(statusFile.getPath() + TEMPORARY_SUFFIX);
+		try
+		{
+			try (Writer out = new FileWriter(temporary))
+			{
+				out.write(report.toString());
+			}
+			Files.move(temporary.toPath(), statusFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException e)
+		{
+			System.err.println("The status file could not be written: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Runs the jobs of a job file
+	 * @param args The job file, optionally followed by the output directory and the number of jobs to render at once
+	 * @throws IOException If the job file could not be read or the output directory could not be created
+	 * @throws InterruptedException If the thread was interrupted while waiting for the jobs
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		if (args.length == 0)
+		{
+			System.err.println("Usage: BatchRunner job-file [output directory] [jobs at once]");
+			System.exit(2);
+		}
+		
+		List<BatchJob> jobs = BatchJob.read(new File(args[0]));
+		File directory = new File(args.length > 1 ? args[1] : DEFAULT_DIRECTORY);
+		int concurrentJobs = (args.length > 2) ? Math.max(1, Integer.parseInt(args[2])) : 1;
+		
+		boolean finished = new BatchRunner(jobs, directory, concurrentJobs).run();
+		System.exit(finished ? 0 : 1);
+	}
+	
+	private enum State
+	{
+		PENDING,
+		RUNNING,
+		DONE,
+		FAILED
+	}
+	
+	/**
+	 * The progress of a single job. Updated by the thread running the job and read by the reporter.
+	 */
+	private static class JobStatus
+	{
+		public final BatchJob job;
+		public volatile State state = State.PENDING;
+		public volatile String error;
+		public volatile long startTime;
+		public volatile long endTime;
+		
+		// Frames found already written when the job started, and frames written by this run
+		public final AtomicInteger framesResumed = new AtomicInteger();
+		public final AtomicInteger framesWritten = new AtomicInteger();
+		public final AtomicLong pixelsWritten = new AtomicLong();
+		
+		public JobStatus(BatchJob job)
+		{
+			this.job = job;
+		}
+		
+		public void frameWritten()
+		{
+			framesWritten.incrementAndGet();
+			pixelsWritten.addAndGet((long) job.width * job.height);
+		}
+		
+		@Override
+		public String toString()
+		{
+			int total = job.getFrameCount();
+			int done = framesResumed.get() + framesWritten.get();
+			String description = String.format("%s: %s, %d of %d frames", job.name, state.toString().toLowerCase(), done, total);
+			if (framesResumed.get() > 0)
+			{
+				description += " (" + framesResumed.get() + " from an earlier run)";
+			}
+			
+			if (state == State.RUNNING || state == State.DONE)
+			{
+				double seconds = (((state == State.DONE) ? endTime : System.nanoTime()) - startTime) / 1e9;
+				double framesPerSecond = framesWritten.get() / seconds;
+				description += String.format(", %.2f frames/s", framesPerSecond);
+				if (state == State.RUNNING && framesPerSecond > 0)
+				{
+					description += String.format(", about %.0f s left", (total - done) / framesPerSecond);
+				}
+			}
+			if (state == State.FAILED)
+			{
+				description += ": " + error;
+			}
+			return description;
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package mandelbrotset;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates numbered daemon threads, so that background work never keeps the program running once the window is closed
+ */
+public class DaemonThreadFactory implements ThreadFactory
+{
+	private final String name;
+	private final int priority;
+	private final AtomicInteger count = new AtomicInteger();
+	
+	/**
+	 * Constructor
+	 * @param name The name given to each thread, followed by its number
+	 */
+	public DaemonThreadFactory(String name)
+	{
+		this(name, Thread.NORM_PRIORITY);
+	}
+	
+	/**
+	 * Constructor
+	 * @param name The name given to each thread, followed by its number
+	 * @param priority The priority of each thread
+	 */
+	public DaemonThreadFactory(String name, int priority)
+	{
+		this.name = name;
+		this.priority = priority;
+	}
+	
+	@Override
+	public Thread newThread(Runnable task)
+	{
+		Thread thread = new Thread(task, name + " " + count.incrementAndGet());
+		thread.setDaemon(true);
+		thread.setPriority(priority);
+		return thread;
+	}
+}
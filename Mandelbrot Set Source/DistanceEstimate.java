@@ -0,0 +1,37 @@
+package mandelbrotset;
+
+/**
+ * Holds the result of the distance estimation kernel for a single point.
+ * An instance is reused from point to point so that no objects are created per pixel.
+ */
+public class DistanceEstimate
+{
+	// The number of iterations before the point escaped, exactly as the plain kernel counts them
+	public int iterations;
+	
+	// Whether the point stayed bounded for every iteration
+	public boolean interior;
+	
+	// The estimated distance from the point to the edge of the set, or 0 for interior points
+	public double distance;
+	
+	/**
+	 * Returns a distance from the point within which no point of the set can lie.
+	 * The true distance lies between a quarter of the estimate and the estimate itself.
+	 * @return A lower bound on the distance to the set, or 0 for interior points
+	 */
+	public double getLowerBound()
+	{
+		return distance / 4;
+	}
+	
+	/**
+	 * Determines whether the point is within a certain distance of the edge of the set
+	 * @param pixelSize The width of a pixel on the complex plane
+	 * @return TRUE if the edge of the set passes within the given distance of the point
+	 */
+	public boolean isBoundary(double pixelSize)
+	{
+		return !interior && distance < pixelSize;
+	}
+}
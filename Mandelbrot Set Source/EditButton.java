@@ -21,7 +21,17 @@ public abstract class EditButton extends Button {
 	 */
 	public EditButton(String prompt)
 	{
-		super(EDIT_STR);
+		this(EDIT_STR, prompt);
+	}
+	
+	/**
+	 * Constructor
+	 * @param text The text in the button
+	 * @param prompt The string to prompt the user with once the button is pressed
+	 */
+	public EditButton(String text, String prompt)
+	{
+		super(text);
 		PROMPT = prompt;
 	}
 
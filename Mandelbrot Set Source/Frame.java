@@ -0,0 +1,39 @@
+package mandelbrotset;
+
+/**
+ * A single rendered frame: the region it shows and the number of iterations at each of its pixels.
+ */
+public class Frame
+{
+	// The region of the complex plane shown by the frame
+	public final Viewport viewport;
+	
+	// The number of iterations at each pixel, one row after another
+	public final int[] iterations;
+	
+	// Whether points within a pixel of the edge of the set were given the maximum number of iterations
+	public final boolean boundaryHighlighted;
+	
+	/**
+	 * Constructor
+	 * @param viewport The region of the complex plane shown by the frame
+	 * @param iterations The number of iterations at each pixel, one row after another
+	 */
+	public Frame(Viewport viewport, int[] iterations)
+	{
+		this(viewport, iterations, false);
+	}
+	
+	/**
+	 * Constructor
+	 * @param viewport The region of the complex plane shown by the frame
+	 * @param iterations The number of iterations at each pixel, one row after another
+	 * @param boundaryHighlighted Whether points within a pixel of the edge of the set were given the maximum number of iterations
+	 */
+	public Frame(Viewport viewport, int[] iterations, boolean boundaryHighlighted)
+	{
+		this.viewport = viewport;
+		this.iterations = iterations;
+		this.boundaryHighlighted = boundaryHighlighted;
+	}
+}
@@ -0,0 +1,827 @@
+package mandelbrotset;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders frames of the Mandelbrot Set by splitting them into square tiles that are shared out between worker threads.
+ * When the previous frame of a zoom is available, the cost of each tile is predicted from it and the most expensive
+ * tiles are handed out first, so that no thread is left with a run of expensive tiles once the others have finished.
+ * When the previous frame shows the same magnification moved by a whole number of pixels, the pixels the two frames share
+ * are copied and only the newly exposed strips are rendered. Since the set is symmetric about the real axis, rows mirrored
+ * across the axis are only rendered once. A run of frames too cheap to split well is rendered a whole frame to a worker,
+ * several frames at once.
+ */
+public class FrameRenderer
+{
+	private static final int TILE_SIZE = 32;
+	
+	/**
+	 * Tiles that cannot be predicted from the previous frame are rendered before all others
+	 */
+	private static final double UNKNOWN_COST = Double.MAX_VALUE;
+	
+	/**
+	 * How close to a whole number of pixels the offset between two frames must be for their pixels to be shared
+	 */
+	private static final double PIXEL_TOLERANCE = 1e-3;
+	
+	/**
+	 * How close the ranges of two frames must be, as a fraction, for them to count as the same magnification
+	 */
+	private static final double RANGE_TOLERANCE = 1e-9;
+	
+	/**
+	 * How close to a whole or half pixel the real axis must be for rows to be mirrored across it
+	 */
+	private static final double AXIS_TOLERANCE = 1e-6;
+	
+	/**
+	 * The number of recently rendered viewports whose profiles are kept
+	 */
+	private static final int MAX_PROFILES = 256;
+	
+	/**
+	 * The most reference orbit points kept between frames, about 32MB
+	 */
+	private static final long MAX_ORBIT_POINTS = 1 << 21;
+	
+	/**
+	 * The reference orbits used by the perturbation kernel, shared by every renderer so that a zoom's orbit is only computed once
+	 */
+	private static final ReferenceOrbitCache orbits = new ReferenceOrbitCache(MAX_ORBIT_POINTS);
+	
+	/**
+	 * The fewest tiles for each worker thread that a frame must have for its tiles to be shared between the workers.
+	 * With fewer, workers spend much of the frame waiting for the last tiles to finish.
+	 */
+	private static final int MIN_TILES_PER_THREAD = 8;
+	
+	/**
+	 * The fewest predicted iterations for each worker thread that a frame must need for its tiles to be shared between the workers.
+	 * Cheaper frames take little longer than handing out their tiles and waiting for them.
+	 */
+	private static final double MIN_ITERATIONS_PER_THREAD = 1e6;
+	
+	private final ExecutorService executor;
+	private final int threads;
+	
+	/**
+	 * Whether points within a pixel of the edge of the set are given the maximum number of iterations
+	 */
+	private volatile boolean highlightBoundary = false;
+	
+	/**
+	 * The precision used by the kernel, or null if it is chosen for each frame
+	 */
+	private volatile KernelPrecision precision = null;
+	
+	/**
+	 * Whether rows mirrored across the real axis are copied rather than rendered twice
+	 */
+	private volatile boolean exploitSymmetry = true;
+	
+	/**
+	 * Whether the time and iterations of each tile are recorded
+	 */
+	private volatile boolean profiling = false;
+	
+	/**
+	 * Counts the pixels of each tile as it is finished, or null if progress is not reported
+	 */
+	private volatile RenderProgress progress = null;
+	
+	/**
+	 * The profiles of the most recently rendered viewports, oldest first
+	 */
+	private final Map<Viewport, TileProfile> profiles = new LinkedHashMap<Viewport, TileProfile>()
+	{
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Viewport, TileProfile> eldest)
+		{
+			return size() > MAX_PROFILES;
+		}
+	};
+	
+	/**
+	 * Constructor. Uses one worker thread per core.
+	 */
+	public FrameRenderer()
+	{
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Constructor
+	 * @param threads The number of worker threads
+	 */
+	public FrameRenderer(int threads)
+	{
+		this(threads, Thread.NORM_PRIORITY);
+	}
+	
+	/**
+	 * Constructor
+	 * @param threads The number of worker threads
+	 * @param priority The priority of the worker threads
+	 */
+	public FrameRenderer(int threads, int priority)
+	{
+		this.threads = threads;
+		executor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("Render Worker", priority));
+	}
+	
+	/**
+	 * Stops the worker threads once the tiles already handed out are finished. The renderer cannot render frames afterwards.
+	 */
+	public void shutdown()
+	{
+		executor.shutdown();
+	}
+	
+	/**
+	 * Sets whether points within a pixel of the edge of the set are given the maximum number of iterations.
+	 * The edge is found with the double precision distance estimate kernel whatever the precision, so it should not be highlighted
+	 * in views deep enough to need perturbation.
+	 * @param highlightBoundary TRUE if the edge of the set should be highlighted
+	 */
+	public void setHighlightBoundary(boolean highlightBoundary)
+	{
+		this.highlightBoundary = highlightBoundary;
+	}
+	
+	/**
+	 * Returns whether points within a pixel of the edge of the set are given the maximum number of iterations
+	 * @return TRUE if the edge of the set is highlighted
+	 */
+	public boolean isHighlightingBoundary()
+	{
+		return highlightBoundary;
+	}
+	
+	/**
+	 * Sets the precision used by the kernel
+	 * @param precision The precision, or null to choose double precision or perturbation for each frame
+	 */
+	public void setPrecision(KernelPrecision precision)
+	{
+		this.precision = precision;
+	}
+	
+	/**
+	 * Sets whether rows mirrored across the real axis are copied rather than rendered twice
+	 * @param exploitSymmetry TRUE if mirrored rows should be copied
+	 */
+	public void setExploitSymmetry(boolean exploitSymmetry)
+	{
+		this.exploitSymmetry = exploitSymmetry;
+	}
+	
+	/**
+	 * Sets whether the time taken and the iterations computed by each tile are recorded
+	 * @param profiling TRUE if tiles should be profiled
+	 */
+	public void setProfiling(boolean profiling)
+	{
+		this.profiling = profiling;
+	}
+	
+	/**
+	 * Returns whether the time taken and the iterations computed by each tile are recorded
+	 * @return TRUE if tiles are profiled
+	 */
+	public boolean isProfiling()
+	{
+		return profiling;
+	}
+	
+	/**
+	 * Sets the counters that each frame's progress is reported to
+	 * @param progress The counters, or null to stop reporting progress
+	 */
+	public void setProgress(RenderProgress progress)
+	{
+		this.progress = progress;
+	}
+	
+	/**
+	 * Returns the profile of the latest render of a viewport
+	 * @param viewport The viewport
+	 * @return The profile, or null if the viewport has not been rendered recently while profiling
+	 */
+	public TileProfile getProfile(Viewport viewport)
+	{
+		synchronized (profiles)
+		{
+			return profiles.get(viewport);
+		}
+	}
+	
+	/**
+	 * Renders a frame
+	 * @param viewport The region to render
+	 * @param previousFrame The previous frame, used to predict the cost of each tile or to copy shared pixels from. May be null.
+	 * @return The rendered frame
+	 * @throws CancellationException If the calling thread was interrupted while rendering
+	 */
+	public Frame render(Viewport viewport, Frame previousFrame)
+	{
+		return render(viewport, previousFrame, true);
+	}
+	
+	/**
+	 * Renders a frame
+	 * @param viewport The region to render
+	 * @param previousFrame The previous frame, used to predict the cost of each tile or to copy shared pixels from. May be null.
+	 * @param reusePixels Whether pixels may be copied from the previous frame. If not, it is only used to predict the cost of each tile.
+	 * @return The rendered frame
+	 * @throws CancellationException If the calling thread was interrupted while rendering
+	 */
+	public Frame render(Viewport viewport, Frame previousFrame, boolean reusePixels)
+	{
+		return render(viewport, previousFrame, reusePixels, false);
+	}
+	
+	/**
+	 * Renders a run of frames, such as the frames of a zoom, and hands them to a listener in order.
+	 * A frame expensive enough to keep every worker busy is rendered on its own with its tiles shared between the workers.
+	 * Cheaper frames are each rendered whole by a single worker while the other workers render the frames after them.
+	 * @param viewports The regions of the frames, in order
+	 * @param previousFrame The frame before the first, used to predict the cost of each frame. May be null.
+	 * @param listener Called on the calling thread with each frame, in order, as soon as it and the frames before it are done
+	 * @throws CancellationException If the calling thread was interrupted while rendering
+	 */
+	public void renderAll(List<Viewport> viewports, Frame previousFrame, FrameListener listener)
+	{
+		List<Future<Frame>> results = new ArrayList<>();
+		int delivered = 0;
+		Frame latest = previousFrame;
+		
+		try
+		{
+			for (final Viewport viewport : viewports)
+			{
+				final Frame predictor = latest;
+				if (isWorthSplitting(viewport, predictor))
+				{
+					FutureTask<Frame> task = new FutureTask<>(new Callable<Frame>()
+					{
+						@Override
+						public Frame call()
+						{
+							return render(viewport, predictor, true, false);
+						}
+					});
+					results.add(task);
+					task.run();
+				}
+				else
+				{
+					results.add(executor.submit(new Callable<Frame>()
+					{
+						@Override
+						public Frame call()
+						{
+							return render(viewport, predictor, true, true);
+						}
+					}));
+				}
+				
+				//frames finished while this one was handed out or rendered
+				while (delivered < results.size() && results.get(delivered).isDone())
+				{
+					latest = results.get(delivered).get();
+					listener.frameRendered(delivered++, latest);
+				}
+			}
+			
+			while (delivered < results.size())
+			{
+				listener.frameRendered(delivered, results.get(delivered++).get());
+			}
+		}
+		catch (InterruptedException e)
+		{
+			for (Future<Frame> result : results)
+			{
+				result.cancel(true);
+			}
+			Thread.currentThread().interrupt();
+			throw new CancellationException("The render was interrupted");
+		}
+		catch (ExecutionException e)
+		{
+			for (Future<Frame> result : results)
+			{
+				result.cancel(true);
+			}
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		}
+	}
+	
+	/**
+	 * Decides whether a frame is expensive enough for its tiles to be shared between the workers
+	 * @param viewport The region to render
+	 * @param previousFrame The frame used to predict the cost of the frame. May be null, in which case only its size is considered.
+	 * @return TRUE if the tiles should be shared, FALSE if the frame should be rendered whole by one worker
+	 */
+	private boolean isWorthSplitting(Viewport viewport, Frame previousFrame)
+	{
+		if (threads == 1) return true;
+		
+		int tiles = ((viewport.width + TILE_SIZE - 1) / TILE_SIZE) * ((viewport.height + TILE_SIZE - 1) / TILE_SIZE);
+		if (tiles < MIN_TILES_PER_THREAD * threads) return false;
+		
+		return previousFrame == null || predictIterations(viewport, previousFrame) >= MIN_ITERATIONS_PER_THREAD * threads;
+	}
+	
+	/**
+	 * Renders a frame
+	 * @param viewport The region to render
+	 * @param previousFrame The previous frame, used to predict the cost of each tile or to copy shared pixels from. May be null.
+	 * @param reusePixels Whether pixels may be copied from the previous frame
+	 * @param onThisThread Whether the tiles are rendered on the calling thread rather than shared between the workers.
+	 * Progress is not reported for frames rendered this way, since several may be rendered at once.
+	 * @return The rendered frame
+	 */
+	private Frame render(Viewport viewport, Frame previousFrame, boolean reusePixels, boolean onThisThread)
+	{
+		boolean highlight = highlightBoundary;
+		int[] iterations = new int[viewport.width * viewport.height];
+		List<Tile> tiles = new ArrayList<>();
+		int[] mirroredRows = null;
+		
+		if (reusePixels && previousFrame != null && previousFrame.boundaryHighlighted == highlight && isTranslation(previousFrame.viewport, viewport))
+		{
+			int offsetX = getPixelOffset(previousFrame.viewport.centerX, viewport.centerX, viewport.xRange / viewport.width);
+			int offsetY = -getPixelOffset(previousFrame.viewport.centerY, viewport.centerY, viewport.yRange / viewport.height);
+			copySharedPixels(previousFrame, iterations, offsetX, offsetY);
+			createExposedTiles(viewport, offsetX, offsetY, tiles);
+		}
+		else if (exploitSymmetry && (mirroredRows = getMirroredRows(viewport)) != null)
+		{
+			createTiles(0, 0, viewport.width, mirroredRows[0], tiles);
+			createTiles(0, mirroredRows[1], viewport.width, viewport.height, tiles);
+		}
+		else
+		{
+			createTiles(0, 0, viewport.width, viewport.height, tiles);
+		}
+		
+		//the order of the tiles only matters when they are shared
+		if (previousFrame != null && !onThisThread)
+		{
+			predictCosts(tiles, viewport, previousFrame);
+			Collections.sort(tiles, MOST_EXPENSIVE_FIRST);
+		}
+		
+		RenderProgress frameProgress = onThisThread ? null : progress;
+		if (frameProgress != null)
+		{
+			long pixels = 0;
+			for (Tile tile : tiles)
+			{
+				pixels += tile.width * tile.height;
+			}
+			frameProgress.frameStarted(pixels);
+		}
+		
+		boolean profile = profiling;
+		KernelPrecision tilePrecision = (precision != null) ? precision : KernelPrecision.select(viewport);
+		ReferenceOrbit orbit = (tilePrecision == KernelPrecision.PERTURBATION && !highlight && !tiles.isEmpty()) ? orbits.getOrbit(viewport) : null;
+		if (onThisThread)
+		{
+			for (Tile tile : tiles)
+			{
+				long start = profile ? System.nanoTime() : 0;
+				renderTile(tile, viewport, iterations, highlight, tilePrecision, orbit);
+				if (profile)
+				{
+					tile.nanos = System.nanoTime() - start;
+				}
+			}
+		}
+		else
+		{
+			renderTiles(tiles, viewport, iterations, highlight, tilePrecision, orbit, profile, frameProgress);
+		}
+		if (profile)
+		{
+			recordProfile(viewport, tiles, iterations);
+		}
+		
+		if (mirroredRows != null)
+		{
+			copyMirroredRows(viewport, iterations, mirroredRows);
+		}
+		return new Frame(viewport, iterations, highlight);
+	}
+	
+	/**
+	 * Finds the rows of a viewport that are the reflection across the real axis of other rows in the same viewport.
+	 * This requires the real axis to lie on a row or exactly halfway between two rows. The rows on the side of the axis
+	 * with fewer rows are the ones that are mirrored.
+	 * @param viewport The viewport
+	 * @return The first mirrored row and the row after the last, or null if no rows can be mirrored
+	 */
+	private static int[] getMirroredRows(Viewport viewport)
+	{
+		//row y is the reflection of row (axisTimesTwo - y)
+		double axisTimesTwo = 2 * viewport.getY(0);
+		if (Math.abs(axisTimesTwo - Math.rint(axisTimesTwo)) > AXIS_TOLERANCE) return null;
+		
+		int mirrorSum = (int) Math.rint(axisTimesTwo);
+		if (mirrorSum <= 0 || mirrorSum >= 2 * (viewport.height - 1)) return null;
+		
+		//rows strictly above and below the axis
+		int rowsAbove = (mirrorSum + 1) / 2;
+		int rowsBelow = viewport.height - mirrorSum / 2 - 1;
+		
+		if (rowsBelow <= rowsAbove)
+		{
+			return new int[] { mirrorSum / 2 + 1, viewport.height };
+		}
+		return new int[] { 0, rowsAbove };
+	}
+	
+	/**
+	 * Copies each mirrored row from its reflection across the real axis
+	 * @param viewport The region being rendered
+	 * @param iterations The buffer of the frame
+	 * @param mirroredRows The first mirrored row and the row after the last
+	 */
+	private static void copyMirroredRows(Viewport viewport, int[] iterations, int[] mirroredRows)
+	{
+		int mirrorSum = (int) Math.rint(2 * viewport.getY(0));
+		for (int y = mirroredRows[0]; y < mirroredRows[1]; y++)
+		{
+			System.arraycopy(iterations, (mirrorSum - y) * viewport.width, iterations, y * viewport.width, viewport.width);
+		}
+	}
+	
+	/**
+	 * Determines whether one viewport shows the same magnification as another, moved by a whole number of pixels
+	 * that leaves some of the pixels in common
+	 * @param previous The earlier viewport
+	 * @param viewport The new viewport
+	 * @return TRUE if the pixels the viewports share can be copied from one to the other
+	 */
+	private static boolean isTranslation(Viewport previous, Viewport viewport)
+	{
+		if (previous.width != viewport.width || previous.height != viewport.height || previous.maxIterations != viewport.maxIterations
+				|| Math.abs(previous.xRange - viewport.xRange) > RANGE_TOLERANCE * viewport.xRange
+				|| Math.abs(previous.yRange - viewport.yRange) > RANGE_TOLERANCE * viewport.yRange)
+		{
+			return false;
+		}
+		
+		double offsetX = (viewport.centerX - previous.centerX) / (viewport.xRange / viewport.width);
+		double offsetY = (viewport.centerY - previous.centerY) / (viewport.yRange / viewport.height);
+		
+		return Math.abs(offsetX - Math.rint(offsetX)) < PIXEL_TOLERANCE && Math.abs(offsetY - Math.rint(offsetY)) < PIXEL_TOLERANCE
+				&& Math.abs(offsetX) < viewport.width && Math.abs(offsetY) < viewport.height;
+	}
+	
+	/**
+	 * Returns the number of whole pixels between two coordinates
+	 * @param from The coordinate in the earlier viewport
+	 * @param to The coordinate in the new viewport
+	 * @param pixelSize The size of a pixel on the complex plane
+	 * @return The offset in pixels
+	 */
+	private static int getPixelOffset(double from, double to, double pixelSize)
+	{
+		return (int) Math.rint((to - from) / pixelSize);
+	}
+	
+	/**
+	 * Copies the pixels that a frame shares with the frame being rendered. Pixel (x, y) of the new frame is
+	 * pixel (x + offsetX, y + offsetY) of the previous one.
+	 * @param previousFrame The frame to copy from
+	 * @param iterations The buffer of the frame being rendered
+	 * @param offsetX The horizontal offset between the frames in pixels
+	 * @param offsetY The vertical offset between the frames in pixels
+	 */
+	private static void copySharedPixels(Frame previousFrame, int[] iterations, int offsetX, int offsetY)
+	{
+		int width = previousFrame.viewport.width;
+		int height = previousFrame.viewport.height;
+		int left = Math.max(0, -offsetX);
+		int right = Math.min(width, width - offsetX);
+		
+		for (int y = Math.max(0, -offsetY); y < Math.min(height, height - offsetY); y++)
+		{
+			System.arraycopy(previousFrame.iterations, (y + offsetY) * width + left + offsetX, iterations, y * width + left, right - left);
+		}
+	}
+	
+	/**
+	 * Creates the tiles that cover the parts of a frame not shared with the previous frame
+	 * @param viewport The region being rendered
+	 * @param offsetX The horizontal offset between the frames in pixels
+	 * @param offsetY The vertical offset between the frames in pixels
+	 * @param tiles The list to which the tiles are added
+	 */
+	private static void createExposedTiles(Viewport viewport, int offsetX, int offsetY, List<Tile> tiles)
+	{
+		int left = Math.max(0, -offsetX);
+		int right = Math.min(viewport.width, viewport.width - offsetX);
+		int top = Math.max(0, -offsetY);
+		int bottom = Math.min(viewport.height, viewport.height - offsetY);
+		
+		//columns on either side of the shared region, over the full height
+		createTiles(0, 0, left, viewport.height, tiles);
+		createTiles(right, 0, viewport.width, viewport.height, tiles);
+		
+		//rows above and below the shared region, between those columns
+		createTiles(left, 0, right, top, tiles);
+		createTiles(left, bottom, right, viewport.height, tiles);
+	}
+	
+	/**
+	 * Renders the tiles on the worker threads, which each take the next tile in the list until none are left
+	 * @param tiles The tiles in the order they should be rendered
+	 * @param viewport The region being rendered
+	 * @param iterations The buffer in which the result is stored
+	 * @param highlight Whether points within a pixel of the edge of the set are given the maximum number of iterations
+	 * @param tilePrecision The precision used by the kernel
+	 * @param orbit The reference orbit used by the perturbation kernel, or null if the precision is not perturbation
+	 * @param profile Whether the time taken by each tile is recorded
+	 * @param progress The counters the pixels of each finished tile are added to. May be null.
+	 */
+	private void renderTiles(final List<Tile> tiles, final Viewport viewport, final int[] iterations, final boolean highlight,
+			final KernelPrecision tilePrecision, final ReferenceOrbit orbit, final boolean profile, final RenderProgress progress)
+	{
+		final AtomicInteger nextTile = new AtomicInteger();
+		final AtomicBoolean cancelled = new AtomicBoolean();
+		
+		List<Future<Void>> workers = new ArrayList<>();
+		for (int worker = 0; worker < Math.min(threads, tiles.size()); worker++)
+		{
+			workers.add(executor.submit(new Callable<Void>()
+			{
+				@Override
+				public Void call()
+				{
+					int index;
+					while (!cancelled.get() && (index = nextTile.getAndIncrement()) < tiles.size())
+					{
+						Tile tile = tiles.get(index);
+						long start = profile ? System.nanoTime() : 0;
+						renderTile(tile, viewport, iterations, highlight, tilePrecision, orbit);
+						if (profile)
+						{
+							tile.nanos = System.nanoTime() - start;
+						}
+						if (progress != null)
+						{
+							progress.pixelsRendered(tile.width * tile.height);
+						}
+					}
+					return null;
+				}
+			}));
+		}
+		
+		try
+		{
+			for (Future<Void> worker : workers)
+			{
+				worker.get();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			cancelled.set(true);
+			Thread.currentThread().interrupt();
+			throw new CancellationException("The render was interrupted");
+		}
+		catch (ExecutionException e)
+		{
+			throw new RuntimeException(e.getCause());
+		}
+	}
+	
+	/**
+	 * Keeps the time taken and the iterations computed by each tile of a render
+	 * @param viewport The region that was rendered
+	 * @param tiles The tiles that were rendered, with their times recorded
+	 * @param iterations The buffer of the frame
+	 */
+	private void recordProfile(Viewport viewport, List<Tile> tiles, int[] iterations)
+	{
+		List<TileProfile.TileSample> samples = new ArrayList<>();
+		for (Tile tile : tiles)
+		{
+			long tileIterations = 0;
+			for (int y = tile.y; y < tile.y + tile.height; y++)
+			{
+				int index = y * viewport.width + tile.x;
+				for (int x = 0; x < tile.width; x++)
+				{
+					tileIterations += iterations[index + x];
+				}
+			}
+			samples.add(new TileProfile.TileSample(tile.x, tile.y, tile.width, tile.height, tile.nanos, tileIterations));
+		}
+		
+		synchronized (profiles)
+		{
+			profiles.put(viewport, new TileProfile(viewport, samples));
+		}
+	}
+	
+	/**
+	 * Renders a single tile
+	 * @param tile The tile to render
+	 * @param viewport The region being rendered
+	 * @param iterations The buffer in which the result is stored
+	 * @param highlight Whether points within a pixel of the edge of the set are given the maximum number of iterations
+	 * @param precision The precision used by the kernel
+	 * @param orbit The reference orbit used by the perturbation kernel, or null if the precision is not perturbation
+	 */
+	private static void renderTile(Tile tile, Viewport viewport, int[] iterations, boolean highlight, KernelPrecision precision, ReferenceOrbit orbit)
+	{
+		DistanceEstimate estimate = highlight ? new DistanceEstimate() : null;
+		double pixelSize = viewport.xRange / viewport.width;
+		
+		//the offset of the view's centre from the orbit's point, which is exact since the two are so close together
+		double orbitOffsetA = (orbit != null) ? viewport.centerX - orbit.centerX : 0;
+		double orbitOffsetB = (orbit != null) ? viewport.centerY - orbit.centerY : 0;
+		
+		for (int y = tile.y; y < tile.y + tile.height; y++)
+		{
+			double b = viewport.getImaginary(y);
+			int index = y * viewport.width + tile.x;
+			for (int x = tile.x; x < tile.x + tile.width; x++, index++)
+			{
+				double a = viewport.getReal(x);
+				if (highlight)
+				{
+					int count = MandelbrotKernel.getMandelbrotIterations(a, b, viewport.maxIterations, estimate);
+					
+					//filaments thinner than a pixel are drawn as if they were part of the set
+					iterations[index] = estimate.isBoundary(pixelSize) ? viewport.maxIterations : count;
+				}
+				else if (precision == KernelPrecision.FLOAT)
+				{
+					iterations[index] = MandelbrotKernel.getMandelbrotIterations((float) a, (float) b, viewport.maxIterations);
+				}
+				else if (orbit != null)
+				{
+					iterations[index] = MandelbrotKernel.getPerturbedIterations(orbitOffsetA + viewport.getRealOffset(x),
+							orbitOffsetB + viewport.getImaginaryOffset(y), orbit, viewport.maxIterations);
+				}
+				else
+				{
+					iterations[index] = MandelbrotKernel.getMandelbrotIterations(a, b, viewport.maxIterations);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Splits a rectangle of a frame into tiles, in rows from the top left
+	 * @param left The left edge of the rectangle
+	 * @param top The top edge of the rectangle
+	 * @param right The right edge of the rectangle, exclusive
+	 * @param bottom The bottom edge of the rectangle, exclusive
+	 * @param tiles The list to which the tiles are added
+	 */
+	private static void createTiles(int left, int top, int right, int bottom, List<Tile> tiles)
+	{
+		for (int y = top; y < bottom; y += TILE_SIZE)
+		{
+			for (int x = left; x < right; x += TILE_SIZE)
+			{
+				tiles.add(new Tile(x, y, Math.min(TILE_SIZE, right - x), Math.min(TILE_SIZE, bottom - y)));
+			}
+		}
+	}
+	
+	/**
+	 * Predicts the total number of iterations needed to render a frame from the previous frame of the zoom.
+	 * Parts of the frame that the previous frame does not cover are expected to run to the maximum number of iterations.
+	 * @param viewport The region to render
+	 * @param previousFrame The previous frame
+	 * @return The predicted number of iterations
+	 */
+	public static double predictIterations(Viewport viewport, Frame previousFrame)
+	{
+		List<Tile> tiles = new ArrayList<>();
+		createTiles(0, 0, viewport.width, viewport.height, tiles);
+		predictCosts(tiles, viewport, previousFrame);
+		
+		double total = 0;
+		for (Tile tile : tiles)
+		{
+			total += (tile.predictedCost == UNKNOWN_COST) ? (double) tile.width * tile.height * viewport.maxIterations : tile.predictedCost;
+		}
+		return total;
+	}
+		
+	/**
+	 * Predicts the cost of each tile from the iterations of the pixels of the previous frame that cover the same region.
+	 * Points that did not escape in the previous frame are expected to run to the new maximum number of iterations.
+	 * @param tiles The tiles to predict the cost of
+	 * @param viewport The region being rendered
+	 * @param previousFrame The previous frame
+	 */
+	private static void predictCosts(List<Tile> tiles, Viewport viewport, Frame previousFrame)
+	{
+		Viewport previous = previousFrame.viewport;
+		
+		for (Tile tile : tiles)
+		{
+			//the region of the previous frame that the tile covers
+			int left = clamp((int) Math.floor(previous.getX(viewport.getReal(tile.x))), previous.width);
+			int right = clamp((int) Math.ceil(previous.getX(viewport.getReal(tile.x + tile.width))), previous.width);
+			int top = clamp((int) Math.floor(previous.getY(viewport.getImaginary(tile.y))), previous.height);
+			int bottom = clamp((int) Math.ceil(previous.getY(viewport.getImaginary(tile.y + tile.height))), previous.height);
+			
+			if (left >= right || top >= bottom)
+			{
+				tile.predictedCost = UNKNOWN_COST;
+				continue;
+			}
+			
+			double cost = 0;
+			for (int y = top; y < bottom; y++)
+			{
+				int index = y * previous.width + left;
+				for (int x = left; x < right; x++, index++)
+				{
+					int count = previousFrame.iterations[index];
+					cost += (count >= previous.maxIterations) ? viewport.maxIterations : count;
+				}
+			}
+			
+			//scales the cost of the sampled pixels to the number of pixels in the tile
+			tile.predictedCost = cost * tile.width * tile.height / ((right - left) * (bottom - top));
+		}
+	}
+	
+	private static int clamp(int value, int max)
+	{
+		return Math.max(0, Math.min(max, value));
+	}
+	
+	private static final Comparator<Tile> MOST_EXPENSIVE_FIRST = new Comparator<Tile>()
+	{
+		@Override
+		public int compare(Tile t1, Tile t2)
+		{
+			return Double.compare(t2.predictedCost, t1.predictedCost);
+		}
+	};
+	
+	/**
+	 * Receives the frames of a run rendered by renderAll
+	 */
+	public interface FrameListener
+	{
+		/**
+		 * Called with each frame of the run, in order
+		 * @param index The position of the frame in the run
+		 * @param frame The rendered frame
+		 */
+		void frameRendered(int index, Frame frame);
+	}
+	
+	/**
+	 * A rectangular part of a frame that is rendered by a single thread
+	 */
+	private static class Tile
+	{
+		public final int x;
+		public final int y;
+		public final int width;
+		public final int height;
+		public double predictedCost;
+		public long nanos;
+		
+		public Tile(int x, int y, int width, int height)
+		{
+			this.x = x;
+			this.y = y;
+			this.width = width;
+			this.height = height;
+		}
+	}
+}
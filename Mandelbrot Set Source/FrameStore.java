@@ -0,0 +1,408 @@
+package mandelbrotset;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.io.Closeable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the frames of an exploration outside the Java heap, so that hundreds of retained frames do not lengthen garbage collections.
+ * Each frame's iterations are copied into a direct buffer owned by the store, two bytes to a pixel when the maximum number of
+ * iterations allows it. Frames are copied back onto the heap only while they are being used. Buffers of frames that are replaced
+ * or cleared are kept for reuse rather than left for the garbage collector.
+ * Every frame is stored with a pyramid of reduced copies, each half the width and height of the one before, so that
+ * a run of frames can be shown in quick succession while scrubbing through them. The reduced copies add a third to the storage.
+ */
+public class FrameStore
+{
+	/**
+	 * The number of released buffers kept for reuse. Buffers released beyond this are left for the garbage collector to free.
+	 */
+	private static final int MAX_SPARE_BUFFERS = 16;
+	
+	/**
+	 * The number of reduced copies stored with each frame. Level 0 is the frame itself.
+	 */
+	public static final int MIP_LEVELS = 3;
+	
+	private final List<StoredFrame> frames = new ArrayList<>();
+	private final List<ByteBuffer> spareBuffers = new ArrayList<>();
+	private long nextId = 0;
+	private long storedBytes = 0;
+	
+	// The number of snapshots not yet closed, while which released buffers are not reused
+	private int openSnapshots = 0;
+	
+	/**
+	 * Returns the number of frames in the store
+	 * @return The number of frames
+	 */
+	public synchronized int size()
+	{
+		return frames.size();
+	}
+	
+	/**
+	 * Adds a frame after the last frame
+	 * @param frame The frame to add
+	 */
+	public synchronized void add(Frame frame)
+	{
+		add(frames.size(), frame);
+	}
+	
+	/**
+	 * Inserts a frame, moving the frames after it along by one
+	 * @param index The index the frame will have
+	 * @param frame The frame to add
+	 */
+	public synchronized void add(int index, Frame frame)
+	{
+		frames.add(index, store(frame));
+	}
+	
+	/**
+	 * Replaces a frame, releasing the storage of the old one
+	 * @param index The index of the frame to replace
+	 * @param frame The new frame
+	 */
+	public synchronized void set(int index, Frame frame)
+	{
+		release(frames.set(index, store(frame)));
+	}
+	
+	/**
+	 * Copies a frame back onto the heap
+	 * @param index The index of the frame
+	 * @return A copy of the frame
+	 */
+	public synchronized Frame get(int index)
+	{
+		return getMip(index, 0);
+	}
+	
+	/**
+	 * Copies a reduced copy of a frame onto the heap. Each pixel of a level holds the highest number of iterations
+	 * of the four pixels of the level below it, so that thin filaments near the set stay visible.
+	 * @param index The index of the frame
+	 * @param level The level of the copy, from 0 for the frame itself to MIP_LEVELS
+	 * @return A frame of the same region with fewer pixels
+	 */
+	public synchronized Frame getMip(int index, int level)
+	{
+		return copy(frames.get(index), level);
+	}
+	
+	/**
+	 * Copies a level of a stored frame onto the heap
+	 * @param stored The frame
+	 * @param level The level of the copy, from 0 for the frame itself to MIP_LEVELS
+	 * @return The copy
+	 */
+	private static Frame copy(StoredFrame stored, int level)
+	{
+		Viewport viewport = getMipViewport(stored.viewport, level);
+		int offset = getMipOffset(stored.viewport, level);
+		int[] iterations = new int[viewport.width * viewport.height];
+		
+		if (stored.narrow)
+		{
+			for (int i = 0; i < iterations.length; i++)
+			{
+				iterations[i] = stored.buffer.getChar(2 * (offset + i));
+			}
+		}
+		else
+		{
+			getInts(stored.buffer, offset).get(iterations);
+		}
+		return new Frame(viewport, iterations, stored.boundaryHighlighted);
+	}
+	
+	/**
+	 * Returns the region shown by a frame without copying its iterations
+	 * @param index The index of the frame
+	 * @return The region shown by the frame
+	 */
+	public synchronized Viewport getViewport(int index)
+	{
+		return frames.get(index).viewport;
+	}
+	
+	/**
+	 * Returns a number that identifies a frame for as long as it is in the store. Replacing a frame gives it a new number.
+	 * @param index The index of the frame
+	 * @return The number of the frame
+	 */
+	public synchronized long getId(int index)
+	{
+		return frames.get(index).id;
+	}
+	
+	/**
+	 * Finds the frame with a given number
+	 * @param id The number of the frame, as returned by getId
+	 * @return The index of the frame, or -1 if it is no longer in the store
+	 */
+	public synchronized int indexOf(long id)
+	{
+		for (int index = 0; index < frames.size(); index++)
+		{
+			if (frames.get(index).id == id) return index;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Removes every frame, releasing their storage
+	 */
+	public synchronized void clear()
+	{
+		for (StoredFrame stored : frames)
+		{
+			release(stored);
+		}
+		frames.clear();
+	}
+	
+	/**
+	 * Returns the number of bytes of direct memory held by the frames in the store, not counting spare buffers
+	 * @return The number of bytes
+	 */
+	public synchronized long getStoredBytes()
+	{
+		return storedBytes;
+	}
+	
+	/**
+	 * Takes a snapshot of the frames in the store, which copies each frame onto the heap only when it is read,
+	 * so that the frames can be written out one at a time. Frames replaced or removed after the snapshot is taken
+	 * stay readable through it until it is closed.
+	 * @return The snapshot, which must be closed once it has been read
+	 */
+	public synchronized Snapshot snapshot()
+	{
+		openSnapshots++;
+		return new Snapshot(new ArrayList<>(frames));
+	}
+	
+	/**
+	 * Copies a frame into a direct buffer
+	 * @param frame The frame to copy
+	 * @return The stored frame
+	 */
+	private StoredFrame store(Frame frame)
+	{
+		boolean narrow = frame.viewport.maxIterations <= Character.MAX_VALUE;
+		int bytes = getMipOffset(frame.viewport, MIP_LEVELS + 1) * (narrow ? 2 : 4);
+		ByteBuffer buffer = acquire(bytes);
+		
+		int[] iterations = frame.iterations;
+		Viewport viewport = frame.viewport;
+		for (int level = 0; level <= MIP_LEVELS; level++)
+		{
+			if (level > 0)
+			{
+				Viewport reduced = getMipViewport(frame.viewport, level);
+				iterations = reduce(iterations, viewport, reduced);
+				viewport = reduced;
+			}
+			
+			int offset = getMipOffset(frame.viewport, level);
+			if (narrow)
+			{
+				for (int i = 0; i < iterations.length; i++)
+				{
+					buffer.putChar(2 * (offset + i), (char) iterations[i]);
+				}
+			}
+			else
+			{
+				getInts(buffer, offset).put(iterations);
+			}
+		}
+		
+		storedBytes += buffer.capacity();
+		return new StoredFrame(nextId++, frame.viewport, frame.boundaryHighlighted, narrow, buffer);
+	}
+	
+	/**
+	 * Returns a view of the integers in a buffer from a given position
+	 * @param buffer The buffer, holding four bytes to a pixel
+	 * @param offset The position of the first integer, counted in pixels
+	 * @return The view of the integers
+	 */
+	private static IntBuffer getInts(ByteBuffer buffer, int offset)
+	{
+		ByteBuffer view = buffer.duplicate().order(ByteOrder.nativeOrder());
+		view.position(4 * offset);
+		return view.asIntBuffer();
+	}
+	
+	/**
+	 * Halves the width and height of a frame's iterations, keeping the highest number of iterations of each block of four pixels
+	 * @param iterations The iterations of each pixel
+	 * @param viewport The viewport the iterations were rendered for
+	 * @param reduced The viewport of the reduced copy
+	 * @return The iterations of each pixel of the reduced copy
+	 */
+	private static int[] reduce(int[] iterations, Viewport viewport, Viewport reduced)
+	{
+		int[] result = new int[reduced.width * reduced.height];
+		for (int y = 0; y < reduced.height; y++)
+		{
+			int top = Math.min(2 * y, viewport.height - 1) * viewport.width;
+			int bottom = Math.min(2 * y + 1, viewport.height - 1) * viewport.width;
+			for (int x = 0; x < reduced.width; x++)
+			{
+				int left = Math.min(2 * x, viewport.width - 1);
+				int right = Math.min(2 * x + 1, viewport.width - 1);
+				result[y * reduced.width + x] = Math.max(Math.max(iterations[top + left], iterations[top + right]),
+						Math.max(iterations[bottom + left], iterations[bottom + right]));
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns the viewport of a reduced copy of a frame
+	 * @param viewport The viewport of the frame
+	 * @param level The level of the copy
+	 * @return The same region with the width and height halved once for each level, rounding up
+	 */
+	private static Viewport getMipViewport(Viewport viewport, int level)
+	{
+		int width = viewport.width;
+		int height = viewport.height;
+		for (int i = 0; i < level; i++)
+		{
+			width = (width + 1) / 2;
+			height = (height + 1) / 2;
+		}
+		return (level == 0) ? viewport : viewport.resize(width, height);
+	}
+	
+	/**
+	 * Returns the position in a stored frame's buffer of a reduced copy, counted in pixels. The levels are stored one after another.
+	 * @param viewport The viewport of the frame
+	 * @param level The level of the copy. The level after the last gives the number of pixels stored.
+	 * @return The number of pixels stored before the copy
+	 */
+	private static int getMipOffset(Viewport viewport, int level)
+	{
+		int offset = 0;
+		for (int i = 0; i < level; i++)
+		{
+			Viewport mip = getMipViewport(viewport, i);
+			offset += mip.width * mip.height;
+		}
+		return offset;
+	}
+	
+	/**
+	 * Returns a buffer of at least a given size, reusing the smallest spare buffer that is large enough
+	 * @param bytes The number of bytes needed
+	 * @return The buffer, with its limit set to the number of bytes needed
+	 */
+	private ByteBuffer acquire(int bytes)
+	{
+		int best = -1;
+		for (int i = 0; i < spareBuffers.size(); i++)
+		{
+			int capacity = spareBuffers.get(i).capacity();
+			if (capacity >= bytes && (best < 0 || capacity < spareBuffers.get(best).capacity()))
+			{
+				best = i;
+			}
+		}
+		
+		ByteBuffer buffer = (best >= 0) ? spareBuffers.remove(best) : ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+		buffer.clear();
+		buffer.limit(bytes);
+		return buffer;
+	}
+	
+	/**
+	 * Releases the storage of a frame that has left the store
+	 * @param stored The frame
+	 */
+	private void release(StoredFrame stored)
+	{
+		storedBytes -= stored.buffer.capacity();
+		
+		//an open snapshot may still read the frame, so its buffer is left for the garbage collector rather than reused
+		if (openSnapshots == 0 && spareBuffers.size() < MAX_SPARE_BUFFERS)
+		{
+			spareBuffers.add(stored.buffer);
+		}
+	}
+	
+	/**
+	 * A read-only list of the frames that were in the store when it was taken, unaffected by later changes to the store
+	 */
+	public class Snapshot extends AbstractList<Frame> implements Closeable
+	{
+		private final List<StoredFrame> stored;
+		private boolean closed = false;
+		
+		private Snapshot(List<StoredFrame> stored)
+		{
+			this.stored = stored;
+		}
+		
+		@Override
+		public Frame get(int index)
+		{
+			synchronized (FrameStore.this)
+			{
+				if (closed) throw new IllegalStateException("The snapshot is closed");
+				return copy(stored.get(index), 0);
+			}
+		}
+		
+		@Override
+		public int size()
+		{
+			return stored.size();
+		}
+		
+		@Override
+		public void close()
+		{
+			synchronized (FrameStore.this)
+			{
+				if (!closed)
+				{
+					closed = true;
+					openSnapshots--;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * A frame whose iterations are held in a direct buffer
+	 */
+	private static class StoredFrame
+	{
+		public final long id;
+		public final Viewport viewport;
+		public final boolean boundaryHighlighted;
+		
+		// Whether each pixel is stored in two bytes rather than four
+		public final boolean narrow;
+		public final ByteBuffer buffer;
+		
+		public StoredFrame(long id, Viewport viewport, boolean boundaryHighlighted, boolean narrow, ByteBuffer buffer)
+		{
+			this.id = id;
+			this.viewport = viewport;
+			this.boundaryHighlighted = boundaryHighlighted;
+			this.narrow = narrow;
+			this.buffer = buffer;
+		}
+	}
+}
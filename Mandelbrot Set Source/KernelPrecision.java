@@ -0,0 +1,41 @@
+package mandelbrotset;
+
+/**
+ * The arithmetic used by the iteration kernel.
+ * Single precision is never chosen automatically, as points near the edge of the set take different numbers of iterations
+ * in float arithmetic however far apart the pixels are. It is only used when asked for, trading exact images for a little speed.
+ * Perturbation takes over once double precision itself runs out: each point is iterated as an offset from a reference orbit
+ * computed with as many digits as the view needs.
+ */
+public enum KernelPrecision
+{
+	FLOAT,
+	DOUBLE,
+	PERTURBATION;
+	
+	/**
+	 * The number of double steps that must separate neighbouring pixels before double precision is used rather than perturbation
+	 */
+	private static final double DOUBLE_MARGIN = 4096;
+	
+	/**
+	 * The largest absolute value taken by a point while it is iterated before it escapes
+	 */
+	private static final double ESCAPE_RADIUS = Math.sqrt(MandelbrotKernel.ESCAPE_VAL);
+	
+	/**
+	 * Chooses the precision for a viewport: double precision while it can tell the pixels apart, then perturbation
+	 * @param viewport The region to be rendered
+	 * @return The precision to use
+	 */
+	public static KernelPrecision select(Viewport viewport)
+	{
+		double pixelSpacing = Math.min(viewport.xRange / viewport.width, viewport.yRange / viewport.height);
+		
+		double largestValue = Math.max(ESCAPE_RADIUS, Math.max(
+				Math.abs(viewport.centerX) + viewport.xRange / 2,
+				Math.abs(viewport.centerY) + viewport.yRange / 2));
+		
+		return (pixelSpacing >= DOUBLE_MARGIN * Math.ulp(largestValue)) ? DOUBLE : PERTURBATION;
+	}
+}
@@ -0,0 +1,176 @@
+package mandelbrotset;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders the frames of a zoom from a few keyframes rather than rendering every frame in full.
+ * A keyframe is rendered for every doubling of the magnification, and each frame is rebuilt by sampling
+ * the keyframe just outside it, with the keyframe just inside it used for the middle of the frame where it has more detail.
+ * All of the frames must share the same centre.
+ */
+public class KeyframeZoom
+{
+	/**
+	 * The magnification between consecutive keyframes
+	 */
+	private static final double KEYFRAME_ZOOM = 2;
+	
+	/**
+	 * Ranges closer than this fraction are treated as the same magnification
+	 */
+	private static final double RANGE_TOLERANCE = 1e-9;
+	
+	private final Viewport[] frames;
+	private final Viewport[] keyframes;
+	
+	/**
+	 * Constructor. Works out which keyframes are needed for the frames.
+	 * @param frames The viewports of the frames of the zoom, from the least to the most magnified
+	 */
+	public KeyframeZoom(Viewport[] frames)
+	{
+		this.frames = frames;
+		
+		Viewport first = frames[0];
+		Viewport last = frames[frames.length - 1];
+		
+		List<Double> ranges = new ArrayList<>();
+		for (double range = first.xRange; range > last.xRange * (1 + RANGE_TOLERANCE); range /= KEYFRAME_ZOOM)
+		{
+			ranges.add(range);
+		}
+		ranges.add(last.xRange);
+		
+		keyframes = new Viewport[ranges.size()];
+		for (int k = 0; k < keyframes.length; k++)
+		{
+			double xRange = ranges.get(k);
+			double yRange = xRange * first.yRange / first.xRange;
+			keyframes[k] = new Viewport(first.centerX, first.centerY, xRange, yRange, first.width, first.height, getKeyframeIterations(xRange));
+		}
+	}
+	
+	/**
+	 * Returns the viewports of the keyframes that must be rendered, from the least to the most magnified
+	 * @return The keyframe viewports
+	 */
+	public Viewport[] getKeyframeViewports()
+	{
+		return keyframes;
+	}
+	
+	/**
+	 * Rebuilds a frame of the zoom from the rendered keyframes
+	 * @param index The index of the frame
+	 * @param renderedKeyframes The keyframes, rendered from the viewports returned by getKeyframeViewports
+	 * @return The rebuilt frame
+	 */
+	public Frame reconstruct(int index, Frame[] renderedKeyframes)
+	{
+		Viewport viewport = frames[index];
+		
+		//the outer keyframe covers the whole frame, the inner one only its middle
+		int outer = 0;
+		while (outer + 1 < keyframes.length && keyframes[outer + 1].xRange >= viewport.xRange * (1 - RANGE_TOLERANCE))
+		{
+			outer++;
+		}
+		Frame outerFrame = renderedKeyframes[outer];
+		Frame innerFrame = (outer + 1 < keyframes.length) ? renderedKeyframes[outer + 1] : null;
+		
+		int[] iterations = new int[viewport.width * viewport.height];
+		for (int y = 0, i = 0; y < viewport.height; y++)
+		{
+			double b = viewport.getImaginary(y);
+			for (int x = 0; x < viewport.width; x++, i++)
+			{
+				double a = viewport.getReal(x);
+				
+				int sample = (innerFrame != null) ? sample(innerFrame, a, b, viewport.maxIterations) : -1;
+				if (sample < 0)
+				{
+					sample = sample(outerFrame, a, b, viewport.maxIterations);
+				}
+				iterations[i] = sample;
+			}
+		}
+		return new Frame(viewport, iterations, outerFrame.boundaryHighlighted);
+	}
+	
+	/**
+	 * Builds a stand-in for a frame by scaling another frame, taking each pixel from the nearest pixel of the other frame.
+	 * Parts of the frame outside the other frame repeat its edge.
+	 * @param source The frame to scale
+	 * @param viewport The region the stand-in shows
+	 * @return The stand-in frame
+	 */
+	public static Frame preview(Frame source, Viewport viewport)
+	{
+		Viewport sourceViewport = source.viewport;
+		
+		//the mapping is separable, so each column and row is only worked out once
+		int[] columns = new int[viewport.width];
+		for (int x = 0; x < viewport.width; x++)
+		{
+			columns[x] = (int) Math.max(0, Math.min(sourceViewport.width - 1, Math.round(sourceViewport.getX(viewport.getReal(x)))));
+		}
+		int[] rows = new int[viewport.height];
+		for (int y = 0; y < viewport.height; y++)
+		{
+			rows[y] = (int) Math.max(0, Math.min(sourceViewport.height - 1, Math.round(sourceViewport.getY(viewport.getImaginary(y)))));
+		}
+		
+		int[] iterations = new int[viewport.width * viewport.height];
+		for (int y = 0, i = 0; y < viewport.height; y++)
+		{
+			int rowStart = rows[y] * sourceViewport.width;
+			for (int x = 0; x < viewport.width; x++, i++)
+			{
+				int count = source.iterations[rowStart + columns[x]];
+				iterations[i] = (count >= sourceViewport.maxIterations) ? viewport.maxIterations : Math.min(count, viewport.maxIterations);
+			}
+		}
+		return new Frame(viewport, iterations, source.boundaryHighlighted);
+	}
+	
+	/**
+	 * Returns the number of iterations at the pixel of a keyframe nearest to a complex number
+	 * @param keyframe The keyframe to sample
+	 * @param a The real component of the complex number
+	 * @param b The imaginary component of the complex number
+	 * @param maxIterations The maximum number of iterations of the frame being rebuilt
+	 * @return The number of iterations, or -1 if the point is outside the keyframe
+	 */
+	private static int sample(Frame keyframe, double a, double b, int maxIterations)
+	{
+		Viewport viewport = keyframe.viewport;
+		long x = Math.round(viewport.getX(a));
+		long y = Math.round(viewport.getY(b));
+		
+		if (x < 0 || y < 0 || x >= viewport.width || y >= viewport.height) return -1;
+		
+		int count = keyframe.iterations[(int) y * viewport.width + (int) x];
+		
+		//points that did not escape in the keyframe are taken to be inside the set
+		return (count >= viewport.maxIterations) ? maxIterations : Math.min(count, maxIterations);
+	}
+	
+	/**
+	 * Works out the maximum number of iterations of a keyframe as the largest of the frames it is used for
+	 * @param xRange The real range of the keyframe
+	 * @return The maximum number of iterations
+	 */
+	private int getKeyframeIterations(double xRange)
+	{
+		int maxIterations = 0;
+		for (Viewport frame : frames)
+		{
+			if (frame.xRange >= xRange / KEYFRAME_ZOOM * (1 - RANGE_TOLERANCE) && frame.xRange <= xRange * KEYFRAME_ZOOM * (1 + RANGE_TOLERANCE))
+			{
+				maxIterations = Math.max(maxIterations, frame.maxIterations);
+			}
+		}
+		return maxIterations;
+	}
+}
@@ -0,0 +1,186 @@
+package mandelbrotset;
+
+/**
+ * Contains the iteration kernels shared by everything that draws the Mandelbrot Set.
+ */
+public class MandelbrotKernel
+{
+	/**
+	 * A point has escaped once the square of its absolute value reaches this value
+	 */
+	public static final int ESCAPE_VAL = 4;
+	
+	/**
+	 * Once a point has escaped, the distance estimation kernel keeps iterating until the square of the
+	 * absolute value reaches this value, since the estimate is only accurate for large values of z
+	 */
+	private static final double DISTANCE_ESCAPE_VAL = 1e10;
+	private static final int MAX_DISTANCE_ITERATIONS = 16;
+	
+	private MandelbrotKernel() { }
+	
+	/**
+	 * Calculates the number of iterations before a complex number "escapes".
+	 * The arithmetic of Complex is inlined here so that no objects are created per iteration.
+	 * @param a The real component of the complex number
+	 * @param b The imaginary component of the complex number
+	 * @param maxIterations The maximum number of iterations
+	 * @return The number of iterations
+	 */
+	public static int getMandelbrotIterations(double a, double b, int maxIterations)
+	{
+		double zA = a;
+		double zB = b;
+		
+		int iterations = 0;
+		
+		//sees if the complex number will escape by using z = z^2 + c
+		while (zA * zA + zB * zB < ESCAPE_VAL && iterations < maxIterations)
+		{
+			iterations++;
+			double newA = zA * zA - zB * zB;
+			zB = zA * zB + zB * zA + b;
+			zA = newA + a;
+		}
+		
+		return iterations;
+	}
+	
+	/**
+	 * Calculates the number of iterations before a complex number "escapes" using single precision arithmetic.
+	 * Points near the edge of the set can take a different number of iterations than in double precision,
+	 * so it is only used when asked for.
+	 * @param a The real component of the complex number
+	 * @param b The imaginary component of the complex number
+	 * @param maxIterations The maximum number of iterations
+	 * @return The number of iterations
+	 */
+	public static int getMandelbrotIterations(float a, float b, int maxIterations)
+	{
+		float zA = a;
+		float zB = b;
+		
+		int iterations = 0;
+		
+		while (zA * zA + zB * zB < ESCAPE_VAL && iterations < maxIterations)
+		{
+			iterations++;
+			float newA = zA * zA - zB * zB;
+			zB = zA * zB + zB * zA + b;
+			zA = newA + a;
+		}
+		
+		return iterations;
+	}
+	
+	/**
+	 * Calculates the number of iterations before a complex number "escapes", while also tracking the
+	 * derivative dz/dc so that the distance from the point to the edge of the set can be estimated.
+	 * The iterations are counted exactly like the plain kernel counts them. This costs noticeably more than
+	 * the plain kernel, so it should only be used when the distance is actually needed.
+	 * @param a The real component of the complex number
+	 * @param b The imaginary component of the complex number
+	 * @param maxIterations The maximum number of iterations
+	 * @param estimate The object in which the result is stored
+	 * @return The number of iterations
+	 */
+	public static int getMandelbrotIterations(double a, double b, int maxIterations, DistanceEstimate estimate)
+	{
+		double zA = a;
+		double zB = b;
+		
+		//z starts at c, so dz/dc starts at 1
+		double dzA = 1;
+		double dzB = 0;
+		
+		int iterations = 0;
+		
+		while (zA * zA + zB * zB < ESCAPE_VAL && iterations < maxIterations)
+		{
+			iterations++;
+			
+			//dz = 2 * z * dz + 1
+			double newDzA = 2 * (zA * dzA - zB * dzB) + 1;
+			dzB = 2 * (zA * dzB + zB * dzA);
+			dzA = newDzA;
+			
+			double newA = zA * zA - zB * zB;
+			zB = zA * zB + zB * zA + b;
+			zA = newA + a;
+		}
+		
+		estimate.iterations = iterations;
+		estimate.interior = zA * zA + zB * zB < ESCAPE_VAL;
+		
+		if (estimate.interior)
+		{
+			estimate.distance = 0;
+			return iterations;
+		}
+		
+		//a few more iterations make the estimate far more accurate without changing the iteration count
+		for (int extra = 0; extra < MAX_DISTANCE_ITERATIONS && zA * zA + zB * zB < DISTANCE_ESCAPE_VAL; extra++)
+		{
+			double newDzA = 2 * (zA * dzA - zB * dzB) + 1;
+			dzB = 2 * (zA * dzB + zB * dzA);
+			dzA = newDzA;
+			
+			double newA = zA * zA - zB * zB;
+			zB = zA * zB + zB * zA + b;
+			zA = newA + a;
+		}
+		
+		//distance = 2 * |z| * ln|z| / |dz|
+		double absZ = Math.sqrt(zA * zA + zB * zB);
+		double absDz = Math.sqrt(dzA * dzA + dzB * dzB);
+		estimate.distance = 2 * absZ * Math.log(absZ) / absDz;
+		
+		return iterations;
+	}
+	
+	/**
+	 * Calculates the number of iterations before a complex number "escapes" by iterating its offset from a reference orbit.
+	 * The offset stays tiny where the complex numbers themselves would need more digits than a double has,
+	 * so this kernel keeps working far deeper than the plain one. Whenever z comes closer to 0 than to the orbit's point,
+	 * or the orbit runs out because its point escaped, the offset is rebased onto the start of the orbit, where the
+	 * orbit is 0 and the offset is z itself. This keeps the offset from losing its digits, which would otherwise glitch the point.
+	 * @param offsetA The real component of the complex number minus that of the orbit's point
+	 * @param offsetB The imaginary component of the complex number minus that of the orbit's point
+	 * @param orbit The reference orbit
+	 * @param maxIterations The maximum number of iterations
+	 * @return The number of iterations
+	 */
+	public static int getPerturbedIterations(double offsetA, double offsetB, ReferenceOrbit orbit, int maxIterations)
+	{
+		//z starts at c, which is the orbit's point 1 plus the offset of c
+		double dA = offsetA;
+		double dB = offsetB;
+		int point = 1;
+		int lastPoint = orbit.getLength() - 1;
+		
+		for (int iterations = 0; ; iterations++)
+		{
+			double refA = orbit.getReal(point);
+			double refB = orbit.getImaginary(point);
+			double zA = refA + dA;
+			double zB = refB + dB;
+			double zSquared = zA * zA + zB * zB;
+			
+			if (zSquared >= ESCAPE_VAL || iterations == maxIterations) return iterations;
+			if (zSquared < dA * dA + dB * dB || point == lastPoint)
+			{
+				dA = zA;
+				dB = zB;
+				refA = 0;
+				refB = 0;
+				point = 0;
+			}
+			
+			//the offset of z * z + c from Z * Z + C is 2 * Z * d + d * d + the offset of c
+			double newDA = 2 * (refA * dA - refB * dB) + dA * dA - dB * dB + offsetA;
+			dB = 2 * (refA * dB + refB * dA) + 2 * dA * dB + offsetB;
+			dA = newDA;
+			point++;
+		}
+	}
+}
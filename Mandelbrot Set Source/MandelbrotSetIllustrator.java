@@ -8,14 +8,33 @@ package mandelbrotset;
 import java.awt.Color;
 import java.awt.Cursor;
 import java.awt.Graphics;
-import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.image.BufferedImage;
-import java.util.Vector;
+import java.awt.image.VolatileImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
 
 
 @SuppressWarnings("serial")
@@ -27,11 +46,35 @@ public class MandelbrotSetIllustrator extends JFrame implements MouseListener
     private static final boolean DRAW_AXES = true;
     private static final Color AXIS_COLOR = Color.YELLOW;
     private static final Color CENTER_MARK_COLOR = Color.RED;
-    private static final int ESCAPE_VAL = 4;
     private static final int STD_BORDER_THICKNESS = 8;
     private static final int TOP_BORDER_THICKNESS = 31;
     private static final int CELL_SIZE = 1;
     
+    /**
+     * The largest cell size a frame of a real-time zoom may be rendered at to keep to the frame delay
+     */
+    private static final int MAX_CELL_SIZE = 8;
+    
+    /**
+     * The number of frames of the next zoom that are rendered in advance while the user decides whether to zoom
+     */
+    private static final int SPECULATIVE_FRAMES = 3;
+    
+    /**
+     * The opacity of the render cost overlay, from 0 to 255
+     */
+    private static final int RENDER_COST_ALPHA = 110;
+    
+    /**
+     * The time in milliseconds that the center must stay unchanged before the current frame is redrawn
+     */
+    private static final int REFRESH_DELAY = 200;
+    
+    /**
+     * The time in milliseconds a frame may take to show while scrubbing before a coarser level of the frame pyramid is used
+     */
+    private static final int SCRUB_FRAME_TIME = 15;
+    
 	/**
 	 *  At this magnification, variables of type double can no longer provide adequate precision
 	 */
@@ -66,12 +109,6 @@ public class MandelbrotSetIllustrator extends JFrame implements MouseListener
     private final int WIDTH = VISIBLE_WIDTH + 2 * STD_BORDER_THICKNESS;
     private final int HEIGHT = VISIBLE_HEIGHT + TOP_BORDER_THICKNESS + STD_BORDER_THICKNESS;
 
-    /**
-     * calculates the number of points vertically and horizontally
-     */
-    private int numCellsX = WIDTH / CELL_SIZE;
-    private int numCellsY = HEIGHT / CELL_SIZE;
-
     /**
      * calculates the ratio of pixels to the scale of the complex plane
      */
@@ -108,21 +145,125 @@ public class MandelbrotSetIllustrator extends JFrame implements MouseListener
     private int currentFrame;
     
     /**
-     * The currently displayed frame
+     * The currently displayed frame. Changed under the frames lock, but read by the threads that replace frames.
      */
-    private int displayedFrame;
+    private volatile int displayedFrame;
     
     /**
      * the delay in milliseconds between the display of each frame
      */
     private int delayBetweenFrames;
     
+    /**
+     * Whether zooms are rebuilt from keyframes instead of rendering every frame
+     */
+    private boolean keyframeZoom = false;
+    
+    /**
+     * Whether each frame of a zoom is displayed as soon as it is rendered, within the delay between frames
+     */
+    private boolean realTimeZoom = false;
+    
+    /**
+     * Whether the time taken by each tile of the displayed frame is drawn over it
+     */
+    private volatile boolean showRenderCost = false;
+    
+    /**
+     * The measured time taken to render each iteration, used to predict how long a frame will take. Zero until a frame has been timed.
+     */
+    private double nanosPerIteration = 0;
+    
     private boolean mouseOnScreen = false;
-    private boolean zoomRequest = false;
+    
+    /**
+     * Whether a zoom has been asked for or is being generated. It is only cleared while holding zoomLock,
+     * which is notified when it is, so that threads waiting for a zoom to finish need not poll.
+     */
+    private volatile boolean zoomRequest = false;
+    private final Object zoomLock = new Object();
     
     private Color[] MANDELBROT_COLORS;
     private Point centerMarkLocation;
-    private Vector <Image> images = new Vector <> ();
+    
+    /**
+     * The size of the center mark in each direction from its centre, in pixels
+     */
+    private static final int CENTER_MARK_SIZE = 5;
+    
+    /**
+     * The displayed frame, kept in video memory so that repainting does not copy it from the heap each time.
+     * Only used by the event dispatch thread.
+     */
+    private VolatileImage displayBuffer;
+    private Image bufferedFrameImage;
+    
+    /**
+     * The image of the displayed frame, and the number in the frame store and mip level of the frame it was drawn from
+     */
+    private Image displayedImage;
+    private long displayedImageId = -1;
+    private int displayedImageLevel;
+    
+    /**
+     * The mip level of the displayed frame that is shown, which is 0 unless the user is scrubbing through the frames
+     */
+    private int displayedLevel;
+    
+    /**
+     * The mip level used while scrubbing, adjusted to keep each frame within the scrub frame time
+     */
+    private int scrubLevel = 1;
+    
+    /**
+     * The generated frames, kept outside the heap. Only the frame on screen has an image.
+     */
+    private final FrameStore frames = new FrameStore();
+    private final FrameRenderer frameRenderer = new FrameRenderer();
+    
+    /**
+     * The zooms taken so far, so that the exploration can be saved
+     */
+    private final List<Session.ZoomStep> zoomPath = new ArrayList<>();
+    
+    /**
+     * Redraws the current frame once edits have settled. Each new edit cancels the pending or running redraw.
+     */
+    private final ScheduledExecutorService refreshScheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("Frame Refresher"));
+    private Future<?> pendingRefresh;
+    private int refreshGeneration = 0;
+    
+    /**
+     * Renders frames that were displayed at a reduced resolution again at full resolution once zooming has finished
+     */
+    private final ExecutorService frameRefiner = Executors.newSingleThreadExecutor(new DaemonThreadFactory("Frame Refiner", Thread.MIN_PRIORITY));
+    
+    private final RenderStatistics statistics = new RenderStatistics();
+    
+    /**
+     * How far the frames of the current zoom have been rendered, sampled by the zoom dialog
+     */
+    private final RenderProgress progress = new RenderProgress();
+    
+    /**
+     * Renders the first frames of the next zoom in advance on low-priority threads, so that zooming can start at once.
+     * Choosing another point cancels the work.
+     */
+    private final ExecutorService zoomSpeculator = Executors.newSingleThreadExecutor(new DaemonThreadFactory("Zoom Speculator", Thread.MIN_PRIORITY));
+    private final FrameRenderer speculativeRenderer = new FrameRenderer(Runtime.getRuntime().availableProcessors(), Thread.MIN_PRIORITY);
+    private final List<Frame> speculativeFrames = new ArrayList<>();
+    
+    /**
+     * Probes the current view for points worth zooming in on when the user asks for a suggestion
+     */
+    private final TargetExplorer targetExplorer = new TargetExplorer();
+    
+    /**
+     * Plays a zoom while its frames are still being rendered
+     */
+    private final ExecutorService zoomAnimator = Executors.newSingleThreadExecutor(new DaemonThreadFactory("Zoom Animator"));
+    private Future<?> speculation;
+    private int speculationGeneration = 0;
     
     /**
      * Constructor 
@@ -137,6 +278,7 @@ public class MandelbrotSetIllustrator extends JFrame implements MouseListener
     	setZoomInterval(zoomInterval);
     	setFrameDelay(delayBetweenFrames);
     	setFramesPerZoom(framesPerZoom);
+    	frameRenderer.setProgress(progress);
 	}
 
     /**
@@ -162,34 +304,6 @@ public class MandelbrotSetIllustrator extends JFrame implements MouseListener
     	runMagnificationLoop();
     }
     
-	/**
-	 * Calculates the number of iterations before the complex number at the point "escapes"
-	 * @param x The x-coordinate of the pixel
-	 * @param y The y-coordinate of the pixel
-	 * @return The number of iterations
-	 */
-    private int getMandelbrotIterations(double x, double y) 
-    {    	
-        //determines complex number equivalent from
-        double a = (x - xStagger) / pixelRatioX;
-        double b = -(y - yStagger) / pixelRatioY;
-
-        Complex c = new Complex(a, b);
-        Complex z = c;
-
-        int iterations = 0;
-        
-        //sees if the complex number will escape by using z = z^2 + c
-        while (z.getAbsoluteValSquared() < ESCAPE_VAL && iterations < currentMaxIterations) 
-        {
-        	iterations++;
-            z = z.getSquare();
-            z.add(c);
-        }
-        
-        return iterations;
-    }
-
     /**
      * Recalculates the various parameters used to generate the image
      */
@@ -199,10 +313,6 @@ public class MandelbrotSetIllustrator extends JFrame implements MouseListener
         xRange = xMax - xMin;
         yRange = yMax - yMin;
 
-        //calculates the number of points vertically and horizontally
-        numCellsX = VISIBLE_WIDTH / CELL_SIZE;
-        numCellsY = VISIBLE_HEIGHT / CELL_SIZE;
-
         //calculates the ratio of pixels to the scale of the complex plane
         pixelRatioX = VISIBLE_WIDTH / xRange;
         pixelRatioY = VISIBLE_HEIGHT / yRange;
@@ -221,10 +331,20 @@ public class MandelbrotSetIllustrator extends JFrame implements MouseListener
      */
     private void generateMandelbrotColors() 
     {
-    	MANDELBROT_COLORS = new Color[currentMaxIterations + 1];
-		for (int iterations = 0; iterations <= currentMaxIterations; iterations++ )
+    	MANDELBROT_COLORS = createMandelbrotColors(currentMaxIterations);
+    }
+    
+    /**
+     * Creates the colors used for each number of iterations
+     * @param maxIterations The maximum number of iterations
+     * @return The color for each number of iterations from 0 to maxIterations
+     */
+    public static Color[] createMandelbrotColors(int maxIterations)
+    {
+    	Color[] colors = new Color[maxIterations + 1];
+		for (int iterations = 0; iterations <= maxIterations; iterations++ )
 		{
-			double quotient = (double) iterations / currentMaxIterations;
+			double quotient = (double) iterations / maxIterations;
 			
 			int hueMax = 175;
 	        int hueMin = 255;
@@ -234,22 +354,104 @@ public class MandelbrotSetIllustrator extends JFrame implements MouseListener
 	        float saturation    = (float)(1 - quotient);
 	        float brightness    = (float)(1 - quotient);
 
-	        MANDELBROT_COLORS[iterations] = Color.getHSBColor(hue,saturation,brightness);    
+	        colors[iterations] = Color.getHSBColor(hue,saturation,brightness);    
 		}
+		return colors;
     }
 
     /**
-     * Magnifies the currently display image centered on the selected point
+     * Magnifies the currently display image centered on the selected point.
+     * The dialog is always re-enabled afterwards, and a zoom that fails is reported rather than ending the zoom loop.
      */
     public void magnifyImage()
     {
+    	cancelRefresh();
+    	stopSpeculation();
     	setCenterFromComplex(centerX, centerY);
-        generateImagesForZoom();  
-        animateZoom();
-        zoomDialog.exitGeneratingState();
-        zoomDialog.notifyDisplayedFrame(getLastFrame(), getLastFrame());
-        zoomRequest = false;
-        
+    	double startMagnification = currentMagnification;
+    	try
+    	{
+    		if (realTimeZoom)
+    		{
+    			generateAndAnimateZoom();
+    		}
+    		else
+    		{
+    			//the zoom starts straight away from scaled copies of the current frame, which are replaced as the real frames are rendered
+    			final int firstFrame = currentFrame + 1;
+    			insertPreviewFrames(firstFrame);
+    			Future<Integer> animation = zoomAnimator.submit(new Callable<Integer>()
+    			{
+    				@Override
+    				public Integer call()
+    				{
+    					return animateZoom(firstFrame);
+    				}
+    			});
+    			try
+    			{
+    				generateImagesForZoom(firstFrame);
+    			}
+    			finally
+    			{
+    				currentFrame = waitForAnimation(animation, firstFrame + framesPerZoom - 1);
+    			}
+    		}
+    		zoomPath.add(new Session.ZoomStep(centerX, centerY, startMagnification, zoomInterval, framesPerZoom, currentMaxIterations));
+    	}
+    	catch (RuntimeException e)
+    	{
+    		zoomDialog.reportZoomFailure(e);
+    	}
+    	finally
+    	{
+    		zoomDialog.updateEntryBounds();
+    		zoomDialog.exitGeneratingState();
+    		zoomDialog.notifyDisplayedFrame(getLastFrame(), getLastFrame());
+    		synchronized (zoomLock)
+    		{
+    			zoomRequest = false;
+    			zoomLock.notifyAll();
+    		}
+    		
+    		//the user may well zoom in again on the same point
+    		startSpeculation();
+    	}
+    }
+    
+    /**
+     * Waits for the animation of a zoom to finish, reporting it if it failed
+     * @param animation The animation, which returns the index of the last frame it showed
+     * @param lastFrame The index of the last frame of the zoom, which becomes the current frame if the animation failed
+     * @return The index of the current frame once the zoom has finished
+     */
+    private int waitForAnimation(Future<Integer> animation, int lastFrame)
+    {
+    	boolean interrupted = false;
+    	try
+    	{
+    		while (true)
+    		{
+    			try
+    			{
+    				return animation.get();
+    			}
+    			catch (InterruptedException e)
+    			{
+    				//the frames of the zoom are in the store whatever happens, so the animation is seen through
+    				interrupted = true;
+    			}
+    		}
+    	}
+    	catch (ExecutionException e)
+    	{
+    		zoomDialog.reportZoomFailure(e.getCause());
+    		return lastFrame;
+    	}
+    	finally
+    	{
+    		if (interrupted) Thread.currentThread().interrupt();
+    	}
     }
 
     /**
@@ -262,7 +464,7 @@ public class MandelbrotSetIllustrator extends JFrame implements MouseListener
         updatePlotBounds(currentMagnification);
         calculateImageParameters();
         
-        images.set(currentFrame, getImage());
+        frames.add(getFrame(null));
     }
 
 	/**
@@ -300,11 +502,86 @@ public class MandelbrotSetIllustrator extends JFrame implements MouseListener
     }
     
     /**
-     * Generates the images to display before they are to be displayed for a smoother animation
+     * Adds a stand-in for each frame of the zoom, made by scaling up the current frame, so that the zoom can be shown at once
+     * @param firstFrame The index of the first frame of the zoom
      */
-    private void generateImagesForZoom()
+    private void insertPreviewFrames(int firstFrame)
+    {
+    	Frame current = frames.get(firstFrame - 1);
+    	List<Viewport> viewports = getNextZoomViewports(framesPerZoom);
+    	for (int i = 0; i < viewports.size(); i++)
+    	{
+    		frames.add(firstFrame + i, KeyframeZoom.preview(current, viewports.get(i)));
+    	}
+    }
+    
+    /**
+     * Renders the frames of the zoom, putting each one in place of its stand-in.
+     * The frames the speculator did not render in advance are rendered together, several at once when they are cheap.
+     * @param firstFrame The index of the first frame of the zoom
+     */
+    private void generateImagesForZoom(final int firstFrame)
     {
     	setCenterMarkAt(new Point(WIDTH/2, HEIGHT/2));
+    	if (keyframeZoom)
+    	{
+    		generateImagesFromKeyframes(firstFrame);
+    		return;
+    	}
+    	
+    	Frame previousFrame = frames.get(firstFrame - 1);
+    	progress.start(framesPerZoom);
+    	
+    	//the position in the zoom and region of each frame that still has to be rendered
+    	final List<Integer> zoomFrames = new ArrayList<>();
+    	List<Viewport> viewports = new ArrayList<>();
+        for (int zoomFrame = 1; zoomFrame <= framesPerZoom; zoomFrame++)
+        {
+        	double zoomProgress = (double)zoomFrame / framesPerZoom;
+            double magnification = currentMagnification * Math.pow(zoomInterval, zoomProgress);
+
+            updateMaxIterations(magnification);
+            updatePlotBounds(magnification);
+            
+            calculateImageParameters();
+            
+            Frame frame = takeSpeculativeFrame(zoomFrame, getViewport());
+            if (frame == null)
+            {
+            	zoomFrames.add(zoomFrame);
+            	viewports.add(getViewport());
+            	continue;
+            }
+            statistics.frameRendered(false);
+            replaceFrame(firstFrame + zoomFrame - 1, frame);
+            if (zoomFrames.isEmpty())
+            {
+            	previousFrame = frame;
+            }
+            progress.frameFinished();
+        }
+        
+        frameRenderer.renderAll(viewports, previousFrame, new FrameRenderer.FrameListener()
+        {
+			@Override
+			public void frameRendered(int index, Frame frame)
+			{
+				statistics.frameRendered(false);
+				replaceFrame(firstFrame + zoomFrames.get(index) - 1, frame);
+				progress.frameFinished();
+			}
+        });
+        currentMagnification *= zoomInterval;
+    }
+    
+    /**
+     * Generates the images of the zoom by rendering a keyframe for every doubling of the magnification
+     * and rebuilding the rest of the frames from them, putting each one in place of its stand-in
+     * @param firstFrame The index of the first frame of the zoom
+     */
+    private void generateImagesFromKeyframes(int firstFrame)
+    {
+    	Viewport[] viewports = new Viewport[framesPerZoom];
         for (int zoomFrame = 1; zoomFrame <= framesPerZoom; zoomFrame++)
         {
         	double zoomProgress = (double)zoomFrame / framesPerZoom;
@@ -315,76 +592,567 @@ public class MandelbrotSetIllustrator extends JFrame implements MouseListener
             
             calculateImageParameters();
             
-            images.add(zoomFrame + currentFrame, getImage());
-            zoomDialog.updateProgress(zoomProgress);
+            viewports[zoomFrame - 1] = getViewport();
+        }
+        
+        KeyframeZoom keyframeZoom = new KeyframeZoom(viewports);
+        Viewport[] keyframeViewports = keyframeZoom.getKeyframeViewports();
+        final Frame[] keyframes = new Frame[keyframeViewports.length];
+        
+        progress.start(keyframes.length);
+        frameRenderer.renderAll(Arrays.asList(keyframeViewports), frames.get(firstFrame - 1), new FrameRenderer.FrameListener()
+        {
+			@Override
+			public void frameRendered(int index, Frame frame)
+			{
+				keyframes[index] = frame;
+				progress.frameFinished();
+			}
+        });
+        
+        for (int zoomFrame = 1; zoomFrame <= framesPerZoom; zoomFrame++)
+        {
+        	replaceFrame(firstFrame + zoomFrame - 1, keyframeZoom.reconstruct(zoomFrame - 1, keyframes));
         }
         currentMagnification *= zoomInterval;
     }
     
     /**
-     * Animates the zoom
+     * Renders and displays each frame of the zoom in turn, treating the delay between frames as a deadline.
+     * Frames that are predicted to miss it are rendered at a lower resolution, and rendered again at full resolution once the zoom has finished.
      */
-    private void animateZoom()
-    {       
-        for (int zoomFrame = 1; zoomFrame <= framesPerZoom; zoomFrame++ )
+    private void generateAndAnimateZoom()
+    {
+    	setCenterMarkAt(new Point(WIDTH/2, HEIGHT/2));
+    	List<Long> reducedFrames = new ArrayList<>();
+    	Frame previousFrame = frames.get(currentFrame);
+    	progress.start(framesPerZoom);
+    	
+        for (int zoomFrame = 1; zoomFrame <= framesPerZoom; zoomFrame++)
         {
+        	long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayBetweenFrames);
+        	double zoomProgress = (double)zoomFrame / framesPerZoom;
+            double magnification = currentMagnification * Math.pow(zoomInterval, zoomProgress);
+
+            updateMaxIterations(magnification);
+            updatePlotBounds(magnification);
+            
+            calculateImageParameters();
+            
+            Viewport viewport = getViewport();
+            Frame frame = takeSpeculativeFrame(zoomFrame, viewport);
+            int cellSize = 1;
+            if (frame == null)
+            {
+            	cellSize = chooseCellSize(viewport, previousFrame, delayBetweenFrames);
+            	frame = renderTimed(viewport.resize(viewport.width / cellSize, viewport.height / cellSize), previousFrame);
+            }
+            statistics.frameRendered(cellSize != 1);
+            
             currentFrame++;
+            frames.add(currentFrame, frame);
+            if (cellSize != 1)
+            {
+            	reducedFrames.add(frames.getId(currentFrame));
+            }
+            previousFrame = frame;
             displayFrame(currentFrame);
+            progress.frameFinished();
+            
+            sleep((int) Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+        currentMagnification *= zoomInterval;
+        
+        for (long frameId : reducedFrames)
+        {
+        	refineFrame(frameId);
+        }
+    }
+    
+    /**
+     * Starts rendering the first frames of the next zoom in the background, replacing any frames rendered in advance for an earlier point
+     */
+    private void startSpeculation()
+    {
+    	stopSpeculation();
+    	if (keyframeZoom) return;
+    	
+    	final List<Viewport> viewports = getNextZoomViewports(SPECULATIVE_FRAMES);
+    	synchronized (speculativeFrames)
+    	{
+    		speculativeFrames.clear();
+    		final int generation = speculationGeneration;
+    		
+    		speculation = zoomSpeculator.submit(new Runnable()
+    		{
+    			@Override
+    			public void run()
+    			{
+    				speculativeRenderer.setHighlightBoundary(frameRenderer.isHighlightingBoundary());
+    				Frame previousFrame = null;
+    				for (Viewport viewport : viewports)
+    				{
+    					try
+    					{
+    						previousFrame = speculativeRenderer.render(viewport, previousFrame);
+    					}
+    					catch (CancellationException e)
+    					{
+    						return;
+    					}
+    					
+    					synchronized (speculativeFrames)
+    					{
+    						if (generation != speculationGeneration) return;
+    						speculativeFrames.add(previousFrame);
+    					}
+    				}
+    			}
+    		});
+    	}
+    }
+    
+    /**
+     * Stops rendering frames in advance. Frames that have already been rendered are kept.
+     */
+    private void stopSpeculation()
+    {
+    	synchronized (speculativeFrames)
+    	{
+    		speculationGeneration++;
+    		if (speculation != null)
+    		{
+    			speculation.cancel(true);
+    			speculation = null;
+    		}
+    	}
+    }
+    
+    /**
+     * Takes a frame of the zoom from those rendered in advance, if it is there
+     * @param zoomFrame The number of the frame within the zoom, starting at 1
+     * @param viewport The region the frame must show
+     * @return The frame, or null if it was not rendered in advance
+     */
+    private Frame takeSpeculativeFrame(int zoomFrame, Viewport viewport)
+    {
+    	if (zoomFrame > SPECULATIVE_FRAMES) return null;
+    	
+    	Frame found = null;
+    	synchronized (speculativeFrames)
+    	{
+    		for (Frame frame : speculativeFrames)
+    		{
+    			if (frame.viewport.equals(viewport) && frame.boundaryHighlighted == frameRenderer.isHighlightingBoundary())
+    			{
+    				found = frame;
+    			}
+    		}
+    		speculativeFrames.remove(found);
+    	}
+    	statistics.speculativeFrameLookedUp(found != null);
+    	return found;
+    }
+    
+    /**
+     * Works out the regions shown by the first frames of the next zoom from the selected point, the same way the zoom itself does
+     * @param count The number of frames
+     * @return The region of each frame
+     */
+    private List<Viewport> getNextZoomViewports(int count)
+    {
+    	List<Viewport> viewports = new ArrayList<>();
+    	double a = centerX;
+    	double b = centerY;
+    	for (int zoomFrame = 1; zoomFrame <= Math.min(count, framesPerZoom); zoomFrame++)
+    	{
+    		double magnification = currentMagnification * Math.pow(zoomInterval, (double)zoomFrame / framesPerZoom);
+    		double deltaX = (startingXRange / 2) / magnification;
+    		double deltaY = (startingYRange / 2) / magnification;
+    		
+    		double maxX = a + deltaX;
+    		double maxY = b + deltaY;
+    		double minX = a - deltaX;
+    		double minY = b - deltaY;
+    		viewports.add(new Viewport((minX + maxX) / 2, (minY + maxY) / 2, maxX - minX, maxY - minY,
+    				VISIBLE_WIDTH / CELL_SIZE, VISIBLE_HEIGHT / CELL_SIZE, calcIterations(magnification)));
+    		
+    		//each frame of a zoom is centred on the centre of the frame before it
+    		a = (minX + maxX) / 2;
+    		b = (minY + maxY) / 2;
+    	}
+    	return viewports;
+    }
+    
+    /**
+     * Chooses the smallest cell size at which a frame is predicted to render within a time limit
+     * @param viewport The region to render, with one pixel for each cell
+     * @param previousFrame The previous frame of the zoom, used to predict the cost of the frame
+     * @param timeLimit The time limit in milliseconds
+     * @return The cell size, a power of two no larger than MAX_CELL_SIZE
+     */
+    private int chooseCellSize(Viewport viewport, Frame previousFrame, int timeLimit)
+    {
+    	if (nanosPerIteration == 0) return 1;
+    	
+    	double predictedNanos = FrameRenderer.predictIterations(viewport, previousFrame) * nanosPerIteration;
+    	double limitNanos = TimeUnit.MILLISECONDS.toNanos(timeLimit);
+    	
+    	int cellSize = 1;
+    	//each doubling of the cell size leaves a quarter of the pixels
+    	while (predictedNanos > limitNanos && cellSize < MAX_CELL_SIZE)
+    	{
+    		cellSize *= 2;
+    		predictedNanos /= 4;
+    	}
+    	return cellSize;
+    }
+    
+    /**
+     * Renders a frame, updating the measured time taken by each iteration
+     * @param viewport The region to render
+     * @param previousFrame The previous frame of the zoom. May be null.
+     * @return The rendered frame, without its image
+     */
+    private Frame renderTimed(Viewport viewport, Frame previousFrame)
+    {
+    	long start = System.nanoTime();
+    	Frame frame = frameRenderer.render(viewport, previousFrame);
+    	long elapsed = System.nanoTime() - start;
+    	
+    	long totalIterations = 0;
+    	for (int count : frame.iterations)
+    	{
+    		totalIterations += count;
+    	}
+    	if (totalIterations > 0)
+    	{
+    		double measured = (double) elapsed / totalIterations;
+    		//averages out the noise of timing a single frame
+    		nanosPerIteration = (nanosPerIteration == 0) ? measured : (nanosPerIteration + measured) / 2;
+    	}
+    	return frame;
+    }
+    
+    /**
+     * Renders a frame that was displayed at a reduced resolution again at full resolution in the background, and puts it in place
+     * of the reduced frame. Refining waits while a zoom is being generated so that it does not slow the zoom down.
+     * @param frameId The number in the frame store of the frame rendered at a reduced resolution
+     */
+    private void refineFrame(final long frameId)
+    {
+    	frameRefiner.execute(new Runnable()
+    	{
+    		@Override
+    		public void run()
+    		{
+    			try
+    			{
+    				waitForZoomToFinish();
+    			}
+    			catch (InterruptedException e)
+    			{
+    				return;
+    			}
+    			
+    			//the frame may have been redrawn or the session replaced in the meantime
+    			Frame reducedFrame;
+    			synchronized (frames)
+    			{
+    				int frameIndex = frames.indexOf(frameId);
+    				if (frameIndex < 0) return;
+    				reducedFrame = frames.get(frameIndex);
+    			}
+    			Frame frame = frameRenderer.render(reducedFrame.viewport.resize(VISIBLE_WIDTH / CELL_SIZE, VISIBLE_HEIGHT / CELL_SIZE), reducedFrame);
+    			
+    			int frameIndex;
+    			synchronized (frames)
+    			{
+    				frameIndex = frames.indexOf(frameId);
+    				if (frameIndex < 0) return;
+    				frames.set(frameIndex, frame);
+    			}
+    			statistics.frameRefined();
+    			
+    			if (frameIndex == displayedFrame)
+    			{
+    				updateScreen();
+    			}
+    		}
+    	});
+    }
+    
+    /**
+     * Waits until no zoom is being generated
+     * @throws InterruptedException If the thread was interrupted while waiting
+     */
+    private void waitForZoomToFinish() throws InterruptedException
+    {
+    	synchronized (zoomLock)
+    	{
+    		while (zoomRequest)
+    		{
+    			zoomLock.wait();
+    		}
+    	}
+    }
+    
+    /**
+     * Animates the zoom. The current frame is left for the zoom thread to update from the result.
+     * @param firstFrame The index of the first frame of the zoom
+     * @return The index of the last frame shown
+     */
+    private int animateZoom(int firstFrame)
+    {
+        int frame = firstFrame;
+        for (int zoomFrame = 1; zoomFrame <= framesPerZoom; zoomFrame++, frame++)
+        {
+            displayFrame(frame);
             sleep(delayBetweenFrames);
-        } 
-        zoomDialog.updateEntryBounds();
+        }
+        return frame - 1;
     }
       
     /**
-     * Redraws the image
+     * Replaces a frame, redrawing it if it is on screen
+     * @param frameIndex The index of the frame
+     * @param frame The new frame
+     */
+    private void replaceFrame(int frameIndex, Frame frame)
+    {
+    	frames.set(frameIndex, frame);
+    	if (frameIndex == displayedFrame)
+    	{
+    		updateScreen();
+    	}
+    }
+    
+    /**
+     * Redraws the image. Only the area covered by the image is repainted, since the layout of the window never changes.
      */
     private void updateScreen()
     {
-    	repaint();
-    	revalidate();
+    	repaint(STD_BORDER_THICKNESS, TOP_BORDER_THICKNESS, VISIBLE_WIDTH, VISIBLE_HEIGHT);
     }
         
     /**
-     * Returns an image of the Mandelbrot Set
-     * @return An image of the Mandelbrot Set
+     * Renders a frame of the Mandelbrot Set using the current parameters
+     * @param previousFrame The previous frame of the zoom, used to schedule the work. May be null.
+     * @return The frame
      */
-    private Image getImage() 
+    private Frame getFrame(Frame previousFrame)
     {
     	generateMandelbrotColors();
     	
-        BufferedImage bufferedImage = new BufferedImage(VISIBLE_WIDTH, VISIBLE_HEIGHT, BufferedImage.TYPE_INT_RGB);
-        Graphics g = bufferedImage.getGraphics();
-        
-        Graphics2D G = (Graphics2D) g;
-
-        int x = 0;
-        
-        for (int i = 0; i < numCellsX; i++, x += CELL_SIZE)
-        {
-            int y = 0;
-            for (int j = 0; j < numCellsY; j++, y += CELL_SIZE) 
-            {
-            	int numIterations  = getMandelbrotIterations(i * CELL_SIZE, j * CELL_SIZE);
-            	Color cellColor = MANDELBROT_COLORS[numIterations];
-                G.setColor(cellColor);
-                G.fillRect(x, y, CELL_SIZE, CELL_SIZE);
-            }
-        }
+    	return frameRenderer.render(getViewport(), previousFrame);
+    }
+    
+    /**
+     * Returns the region of the complex plane that is currently shown, with one pixel for each cell
+     * @return The current viewport
+     */
+    private Viewport getViewport()
+    {
+    	return new Viewport((xMin + xMax) / 2, (yMin + yMax) / 2, xMax - xMin, yMax - yMin, VISIBLE_WIDTH / CELL_SIZE, VISIBLE_HEIGHT / CELL_SIZE, currentMaxIterations);
+    }
         
+    /**
+     * Returns the image of the displayed frame, drawing it if the displayed frame has changed since the image was last drawn
+     * @return The image of the displayed frame
+     */
+    private Image getDisplayedImage()
+    {
+    	Frame frame;
+    	long frameId;
+    	int level;
+    	synchronized (frames)
+    	{
+    		frameId = frames.getId(displayedFrame);
+    		level = displayedLevel;
+    		if (frameId == displayedImageId && level == displayedImageLevel) return displayedImage;
+    		frame = frames.getMip(displayedFrame, level);
+    	}
+    	
+    	//drawn outside the lock, since drawing an image may need the lock of the window
+    	Image image = getImage(frame);
+    	synchronized (frames)
+    	{
+    		displayedImage = image;
+    		displayedImageId = frameId;
+    		displayedImageLevel = level;
+    	}
+    	return image;
+    }
+    
+    /**
+     * Returns an image of the Mandelbrot Set
+     * @param frame The rendered frame to draw
+     * @return An image of the Mandelbrot Set
+     */
+    private Image getImage(Frame frame) 
+    {
+    	Viewport viewport = frame.viewport;
+    	Color[] colors = MANDELBROT_COLORS;
+    	if (colors.length != viewport.maxIterations + 1)
+    	{
+    		colors = createMandelbrotColors(viewport.maxIterations);
+    	}
+    	
+    	int[] cellColors = new int[frame.iterations.length];
+    	for (int i = 0; i < cellColors.length; i++)
+    	{
+    		cellColors[i] = colors[frame.iterations[i]].getRGB();
+    	}
+    	
+    	BufferedImage cellImage = new BufferedImage(viewport.width, viewport.height, BufferedImage.TYPE_INT_RGB);
+    	cellImage.setRGB(0, 0, viewport.width, viewport.height, cellColors, 0, viewport.width);
+    	
+    	//an image in the format of the screen can be drawn without being converted, and may be cached in video memory
+    	BufferedImage bufferedImage = getGraphicsConfiguration().createCompatibleImage(VISIBLE_WIDTH, VISIBLE_HEIGHT);
+    	Graphics g = bufferedImage.getGraphics();
+    	g.drawImage(cellImage, 0, 0, VISIBLE_WIDTH, VISIBLE_HEIGHT, null);
+    	
         if (DRAW_AXES)
         {
-        	drawComplexAxes(G);
+        	drawComplexAxes(g, viewport);
         }
+        g.dispose();
             
         return bufferedImage;
     }
     
+    /**
+     * Renders the currently displayed region at a higher resolution straight to a PNG file
+     * @param posterHeight The height of the poster in pixels. The width keeps the proportions of the window.
+     * @param file The file to write the poster to
+     * @throws IOException If the file could not be written
+     * @throws InterruptedException If the thread was interrupted while rendering
+     */
+    public void renderPoster(int posterHeight, File file) throws IOException, InterruptedException
+    {
+    	int posterWidth = (int) ((long) posterHeight * VISIBLE_WIDTH / VISIBLE_HEIGHT);
+    	Viewport viewport = new Viewport((xMin + xMax) / 2, (yMin + yMax) / 2, xRange, yRange, posterWidth, posterHeight, currentMaxIterations);
+    	
+    	new PosterRenderer(viewport).render(file);
+    }
+    
+    /**
+     * Finds points in the current view that are worth zooming in on next
+     * @return The points that hold enough detail, best first
+     * @throws InterruptedException If the thread was interrupted while probing
+     */
+    public List<TargetExplorer.Target> suggestTargets() throws InterruptedException
+    {
+    	return targetExplorer.findTargets(getViewport(), zoomInterval, calcIterations(currentMagnification * zoomInterval));
+    }
+    
+    /**
+     * Saves the exploration so far to a session file
+     * @param file The file to write
+     * @param includeIterations TRUE to store the iterations of every frame, so that loading does not need to render them again
+     * @throws IOException If the file could not be written
+     */
+    public void saveSession(File file, boolean includeIterations) throws IOException
+    {
+    	Session session = new Session();
+    	FrameStore.Snapshot snapshot;
+    	synchronized (frames)
+    	{
+    		//the frames are written from a snapshot, as zooms and refreshes may change the store while the file is written
+    		snapshot = frames.snapshot();
+    		session.frames = snapshot;
+    		session.zoomPath.addAll(zoomPath);
+    		session.magnification = currentMagnification;
+    		session.selectedX = centerX;
+    		session.selectedY = centerY;
+    		session.zoomInterval = zoomInterval;
+    		session.framesPerZoom = framesPerZoom;
+    		session.frameDelay = delayBetweenFrames;
+    	}
+    	
+    	try (OutputStream out = new FileOutputStream(file))
+    	{
+    		SessionFile.write(session, out, includeIterations);
+    	}
+    	finally
+    	{
+    		snapshot.close();
+    	}
+    }
+    
+    /**
+     * Replaces the exploration with one loaded from a session file. Frames stored without their iterations are rendered again.
+     * @param file The file to read
+     * @throws IOException If the file could not be read
+     */
+    public void loadSession(File file) throws IOException
+    {
+    	Session session;
+    	try (InputStream in = new FileInputStream(file))
+    	{
+    		session = SessionFile.read(in);
+    	}
+    	if (session.frames.isEmpty()) throw new IOException("The session contains no frames");
+    	
+    	List<Frame> loadedFrames = new ArrayList<>();
+    	Frame previousFrame = null;
+    	progress.start(session.frames.size());
+    	for (Frame frame : session.frames)
+    	{
+    		if (frame.iterations.length != frame.viewport.width * frame.viewport.height)
+    		{
+    			frame = frameRenderer.render(frame.viewport, previousFrame);
+    		}
+    		loadedFrames.add(frame);
+    		previousFrame = frame;
+    		progress.frameFinished();
+    	}
+    	
+    	cancelRefresh();
+    	synchronized (frames)
+    	{
+    		frames.clear();
+    		for (Frame frame : loadedFrames)
+    		{
+    			frames.add(frame);
+    		}
+    		zoomPath.clear();
+    		zoomPath.addAll(session.zoomPath);
+    		
+    		currentFrame = frames.size() - 1;
+    		
+    		//the old display index may be past the loaded frames, and a repaint is queued before the dialog shows the last frame
+    		displayedFrame = currentFrame;
+    		displayedLevel = 0;
+    		displayedImageId = -1;
+    		currentMagnification = session.magnification;
+    		currentMaxIterations = previousFrame.viewport.maxIterations;
+    		generateMandelbrotColors();
+    		
+    		zoomInterval = session.zoomInterval;
+    		framesPerZoom = session.framesPerZoom;
+    		delayBetweenFrames = session.frameDelay;
+    		
+    		Viewport viewport = previousFrame.viewport;
+    		xRange = viewport.xRange;
+    		yRange = viewport.yRange;
+    		setPlotCenter(viewport.centerX, viewport.centerY);
+    		setCenterFromComplex(session.selectedX, session.selectedY);
+    	}
+    	startSpeculation();
+    }
+    
     /**
      * Draws complex axes
      * @param g The graphics object that will drawing
+     * @param viewport The region of the complex plane shown by the image
      */
-    private void drawComplexAxes(Graphics g){
+    private void drawComplexAxes(Graphics g, Viewport viewport){
         g.setColor(AXIS_COLOR);
+        
+        //position of the origin with respect to the image
+        double xStagger = viewport.getX(0) * VISIBLE_WIDTH / viewport.width;
+        double yStagger = viewport.getY(0) * VISIBLE_HEIGHT / viewport.height;
 
         //start and end points for imaginary axis
         int i_x1 = (int)xStagger;
@@ -411,7 +1179,7 @@ public class MandelbrotSetIllustrator extends JFrame implements MouseListener
      */
     private void drawCenterMark(Graphics g) 
     {
-        int centerMarkSize = 5;
+        int centerMarkSize = CENTER_MARK_SIZE;
         int x = (int) (centerMarkLocation.x);
         int y = (int) (centerMarkLocation.y);
         
@@ -421,18 +1189,22 @@ public class MandelbrotSetIllustrator extends JFrame implements MouseListener
     }
     
     /**
-     * Sets the center of the next zoom, and position of the marker from the mouse's location
+     * Sets the center of the next zoom, and position of the marker from the mouse's location.
+     * The plot bounds and the selected point are changed under the frames lock, as a refresh may move the plot at any time.
      * @param mouseLocation The location of the mouse of the window
      */
     private void setCenterFromMouseLocation(Point mouseLocation)
     {
-        calculateImageParameters();
-
-        double x = xMin + (double)(mouseLocation.x - STD_BORDER_THICKNESS) / VISIBLE_WIDTH * xRange;
-        double y = yMin + (double)(VISIBLE_HEIGHT - (mouseLocation.y - TOP_BORDER_THICKNESS)) / VISIBLE_HEIGHT * yRange;
-        
-        setCenterPoint(x, y);
-        setCenterMarkAt(mouseLocation);
+    	synchronized (frames)
+    	{
+    		calculateImageParameters();
+    		
+    		double x = xMin + (double)(mouseLocation.x - STD_BORDER_THICKNESS) / VISIBLE_WIDTH * xRange;
+    		double y = yMin + (double)(VISIBLE_HEIGHT - (mouseLocation.y - TOP_BORDER_THICKNESS)) / VISIBLE_HEIGHT * yRange;
+    		
+    		setCenterPoint(x, y);
+    		setCenterMarkAt(mouseLocation);
+    	}
     }
     
     /**
@@ -453,7 +1225,7 @@ public class MandelbrotSetIllustrator extends JFrame implements MouseListener
      * @param magnification The magnification of the image from the starting image 
      * @return The ideal maximum number of iterations to use when generating the mandelbrot set
      */
-    private static int calcIterations(double magnification)
+    static int calcIterations(double magnification)
     {
     	return (int)(Math.sqrt(Math.abs(2*Math.sqrt(Math.abs(1-Math.sqrt(5*magnification)))))*66.5);
     }
@@ -464,7 +1236,24 @@ public class MandelbrotSetIllustrator extends JFrame implements MouseListener
      */
     private void setCenterMarkAt(Point p)
     {
+    	Point oldLocation = centerMarkLocation;
     	centerMarkLocation = p;
+    	
+    	//only the areas under the old and new marks need to be redrawn
+    	if (oldLocation != null)
+    	{
+    		repaintCenterMark(oldLocation);
+    	}
+    	repaintCenterMark(p);
+    }
+    
+    /**
+     * Repaints the area of the window covered by the center mark at a given location
+     * @param p The location of the mark
+     */
+    private void repaintCenterMark(Point p)
+    {
+    	repaint((int) p.x - CENTER_MARK_SIZE, (int) p.y - CENTER_MARK_SIZE, 2 * CENTER_MARK_SIZE + 1, 2 * CENTER_MARK_SIZE + 1);
     }
     
     /**
@@ -474,22 +1263,197 @@ public class MandelbrotSetIllustrator extends JFrame implements MouseListener
      */
     public void setCenterFromComplex(double a, double b)
     {
-    	Point selectedPoint = convertComplexToPointOnScreen(a, b);
-    	setCenterPoint(a, b);
-    	setCenterMarkAt(selectedPoint);
-    	images.add(currentFrame, getImage());
+    	synchronized (frames)
+    	{
+    		Point selectedPoint = convertComplexToPointOnScreen(a, b);
+    		setCenterPoint(a, b);
+    		setCenterMarkAt(selectedPoint);
+    	}
+    }
+    
+    /**
+     * Marks the current frame as out of date. It is redrawn once no further changes have been made for a short time,
+     * so a burst of edits only costs a single render.
+     * @param recenter TRUE if the redrawn frame should be moved so that the selected point is at its centre
+     */
+    private void invalidateCurrentFrame(final boolean recenter)
+    {
+    	synchronized (frames)
+    	{
+    		cancelRefresh();
+    		
+    		final Viewport viewport = recenter ? getRecenteredViewport() : getViewport();
+    		final Frame previousFrame = frames.get(currentFrame);
+    		final int frameIndex = currentFrame;
+    		final int generation = refreshGeneration;
+    		
+    		pendingRefresh = refreshScheduler.schedule(new Runnable()
+    		{
+    			@Override
+    			public void run()
+    			{
+    				refreshFrame(viewport, previousFrame, recenter, frameIndex, generation);
+    			}
+    		}, REFRESH_DELAY, TimeUnit.MILLISECONDS);
+    	}
+    	startSpeculation();
+    }
+    
+    /**
+     * Returns the current view moved by a whole number of pixels so that the selected point is as close as possible to its centre.
+     * Moving by whole pixels lets the frame renderer copy every pixel the old and new views share.
+     * @return The recentered viewport
+     */
+    private Viewport getRecenteredViewport()
+    {
+    	Viewport viewport = getViewport();
+    	double pixelWidth = viewport.xRange / viewport.width;
+    	double pixelHeight = viewport.yRange / viewport.height;
+    	double newCenterX = viewport.centerX + Math.rint((centerX - viewport.centerX) / pixelWidth) * pixelWidth;
+    	double newCenterY = viewport.centerY + Math.rint((centerY - viewport.centerY) / pixelHeight) * pixelHeight;
+    	
+    	return new Viewport(newCenterX, newCenterY, viewport.xRange, viewport.yRange, viewport.width, viewport.height, viewport.maxIterations);
+    }
+    
+    /**
+     * Cancels the pending redraw of the current frame, interrupting it if it has already started
+     */
+    private void cancelRefresh()
+    {
+    	synchronized (frames)
+    	{
+    		refreshGeneration++;
+    		if (pendingRefresh != null)
+    		{
+    			pendingRefresh.cancel(true);
+    			pendingRefresh = null;
+    		}
+    	}
     }
     
     /**
-     * Draws the image to the screen with the axes and center mark drawn on top
+     * Redraws a frame in place, unless the redraw has been superseded in the meantime.
+     * If the frame has moved, the plot is moved along with it.
+     * @param viewport The region shown by the frame
+     * @param previousFrame The frame being replaced, whose pixels are reused where the views overlap
+     * @param reusePixels Whether pixels may be copied from the frame being replaced. A frame redrawn without moving has changed settings, so none can be.
+     * @param frameIndex The index of the frame to replace
+     * @param generation The value of refreshGeneration when the redraw was requested
+     */
+    private void refreshFrame(Viewport viewport, Frame previousFrame, boolean reusePixels, int frameIndex, int generation)
+    {
+    	Frame frame;
+    	try
+    	{
+    		frame = frameRenderer.render(viewport, previousFrame, reusePixels);
+    	}
+    	catch (CancellationException e)
+    	{
+    		return;
+    	}
+    	
+    	synchronized (frames)
+    	{
+    		if (generation != refreshGeneration) return;
+    		frames.set(frameIndex, frame);
+    		pendingRefresh = null;
+    		setPlotCenter(viewport.centerX, viewport.centerY);
+    	}
+    	
+    	SwingUtilities.invokeLater(new Runnable()
+    	{
+    		@Override
+    		public void run()
+    		{
+    			zoomDialog.updateEntryBounds();
+    		}
+    	});
+    	updateScreen();
+    }
+    
+    /**
+     * Moves the plot so that it is centred on a complex number, without changing the point selected for the next zoom.
+     * Called with the frames lock held, which every change to the plot bounds or the selected point takes.
+     * @param a The real component of the new centre of the plot
+     * @param b The imaginary component of the new centre of the plot
+     */
+    private void setPlotCenter(double a, double b)
+    {
+    	double selectedX = centerX;
+    	double selectedY = centerY;
+    	
+    	xMin = a - xRange / 2;
+    	xMax = a + xRange / 2;
+    	yMin = b - yRange / 2;
+    	yMax = b + yRange / 2;
+    	calculateImageParameters();
+    	
+    	centerX = selectedX;
+    	centerY = selectedY;
+    	setCenterMarkAt(convertComplexToPointOnScreen(centerX, centerY));
+    }
+    
+    /**
+     * Draws the image to the screen with the axes and center mark drawn on top.
+     * The image is copied to video memory only when the displayed frame changes, and only the area being repainted is drawn.
      */
     @Override
 	public void paint(Graphics g)
     {
-    	g.drawImage(images.get(displayedFrame), STD_BORDER_THICKNESS, TOP_BORDER_THICKNESS, null);
+    	Image image = getDisplayedImage();
+    	do
+    	{
+    		int status = (displayBuffer == null) ? VolatileImage.IMAGE_INCOMPATIBLE : displayBuffer.validate(getGraphicsConfiguration());
+    		if (status == VolatileImage.IMAGE_INCOMPATIBLE)
+    		{
+    			displayBuffer = createVolatileImage(VISIBLE_WIDTH, VISIBLE_HEIGHT);
+    		}
+    		if (status != VolatileImage.IMAGE_OK || image != bufferedFrameImage)
+    		{
+    			Graphics bufferGraphics = displayBuffer.getGraphics();
+    			bufferGraphics.drawImage(image, 0, 0, null);
+    			bufferGraphics.dispose();
+    			bufferedFrameImage = image;
+    		}
+    		g.drawImage(displayBuffer, STD_BORDER_THICKNESS, TOP_BORDER_THICKNESS, null);
+    	}
+    	while (displayBuffer.contentsLost());
+    	
+    	if (showRenderCost)
+    	{
+    		drawRenderCost(g);
+    	}
         drawCenterMark(g);
     }
     
+    /**
+     * Draws each tile of the displayed frame in a color from blue to red by the time it took to render, relative to the slowest tile.
+     * Parts of the frame that were copied rather than rendered are left clear.
+     * @param g The graphics object of the window
+     */
+    private void drawRenderCost(Graphics g)
+    {
+    	TileProfile profile = frameRenderer.getProfile(frames.getViewport(displayedFrame));
+    	if (profile == null) return;
+    	
+    	double maxNanos = Math.max(1, profile.getMaxNanos());
+    	double scaleX = (double) VISIBLE_WIDTH / profile.viewport.width;
+    	double scaleY = (double) VISIBLE_HEIGHT / profile.viewport.height;
+    	for (TileProfile.TileSample tile : profile.getSamples())
+    	{
+    		float cost = (float) (tile.nanos / maxNanos);
+    		Color color = Color.getHSBColor((1 - cost) * 2 / 3f, 1, 1);
+    		g.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), RENDER_COST_ALPHA));
+    		
+    		//the edges are rounded separately so that neighbouring tiles neither overlap nor leave gaps
+    		int left = (int) Math.round(tile.x * scaleX);
+    		int top = (int) Math.round(tile.y * scaleY);
+    		int right = (int) Math.round((tile.x + tile.width) * scaleX);
+    		int bottom = (int) Math.round((tile.y + tile.height) * scaleY);
+    		g.fillRect(STD_BORDER_THICKNESS + left, TOP_BORDER_THICKNESS + top, right - left, bottom - top);
+    	}
+    }
+    
     /**
      * Used to make the main thread sleep
      * @param duration The duration of the sleep in milliseconds
@@ -566,6 +1530,7 @@ public class MandelbrotSetIllustrator extends JFrame implements MouseListener
     public void setZoomInterval(double zoomInterval)
     {
     	this.zoomInterval = zoomInterval;
+    	startSpeculation();
     }
     
 	/**
@@ -584,6 +1549,124 @@ public class MandelbrotSetIllustrator extends JFrame implements MouseListener
     public void setFramesPerZoom(int framesPerZoom)
     {
     	this.framesPerZoom = framesPerZoom;
+    	startSpeculation();
+    }
+    
+    /**
+     * Sets whether points within a pixel of the edge of the set are drawn in the color of the set.
+     * This reveals thin filaments without increasing the number of iterations. The current frame is redrawn and existing frames are left unchanged.
+     * @param highlightBoundary TRUE if the edge of the set should be highlighted
+     */
+    public void setHighlightBoundary(boolean highlightBoundary)
+    {
+    	frameRenderer.setHighlightBoundary(highlightBoundary);
+    	invalidateCurrentFrame(false);
+    }
+    
+    /**
+     * Returns whether points within a pixel of the edge of the set are drawn in the color of the set
+     * @return TRUE if the edge of the set is highlighted
+     */
+    public boolean isHighlightingBoundary()
+    {
+    	return frameRenderer.isHighlightingBoundary();
+    }
+    
+    /**
+     * Sets whether zooms are rebuilt from a keyframe for every doubling of the magnification instead of rendering every frame.
+     * This is much faster when there are many frames per zoom, at the cost of some blurring between keyframes.
+     * @param keyframeZoom TRUE if zooms should be rebuilt from keyframes
+     */
+    public void setKeyframeZoom(boolean keyframeZoom)
+    {
+    	this.keyframeZoom = keyframeZoom;
+    }
+    
+    /**
+     * Returns whether zooms are rebuilt from keyframes
+     * @return TRUE if zooms are rebuilt from keyframes
+     */
+    public boolean isKeyframeZoom()
+    {
+    	return keyframeZoom;
+    }
+    
+    /**
+     * Sets whether each frame of a zoom is displayed as soon as it is rendered. The delay between frames becomes a deadline,
+     * and frames that would miss it are rendered at a lower resolution and refined once the zoom has finished.
+     * @param realTimeZoom TRUE if zooms should be displayed in real time
+     */
+    public void setRealTimeZoom(boolean realTimeZoom)
+    {
+    	this.realTimeZoom = realTimeZoom;
+    }
+    
+    /**
+     * Returns whether each frame of a zoom is displayed as soon as it is rendered
+     * @return TRUE if zooms are displayed in real time
+     */
+    public boolean isRealTimeZoom()
+    {
+    	return realTimeZoom;
+    }
+    
+    /**
+     * Sets whether the time taken by each tile of the displayed frame is drawn over it. Tiles are only timed while this is on,
+     * so the current frame is rendered again when it is turned on.
+     * @param showRenderCost TRUE if the render cost should be drawn
+     */
+    public void setShowRenderCost(boolean showRenderCost)
+    {
+    	this.showRenderCost = showRenderCost;
+    	frameRenderer.setProfiling(showRenderCost);
+    	if (showRenderCost)
+    	{
+    		invalidateCurrentFrame(false);
+    	}
+    	updateScreen();
+    }
+    
+    /**
+     * Returns whether the time taken by each tile of the displayed frame is drawn over it
+     * @return TRUE if the render cost is drawn
+     */
+    public boolean isShowingRenderCost()
+    {
+    	return showRenderCost;
+    }
+    
+    /**
+     * Saves the time taken and the iterations computed by each tile of the displayed frame as comma-separated values
+     * @param file The file to write to
+     * @throws IOException If the displayed frame has not been profiled or the file could not be written
+     */
+    public void saveRenderProfile(File file) throws IOException
+    {
+    	TileProfile profile = frameRenderer.getProfile(frames.getViewport(displayedFrame));
+    	if (profile == null) throw new IOException("The displayed frame was not rendered while the render cost was shown");
+    	
+    	try (Writer out = new FileWriter(file))
+    	{
+    		profile.writeCsv(out);
+    	}
+    }
+    
+    /**
+     * Returns the statistics of what has been rendered so far
+     * @return The statistics
+     */
+    public RenderStatistics getStatistics()
+    {
+    	return statistics;
+    }
+    
+    /**
+     * Returns the progress of the zoom being generated
+     * @return The progress counters, which may be read from any thread
+     */
+    public RenderProgress getProgress()
+    {
+    	return progress;
     }
     
     /**
@@ -622,12 +1705,12 @@ public class MandelbrotSetIllustrator extends JFrame implements MouseListener
     @Override public void mouseExited(MouseEvent e) { mouseOnScreen = false; }
     @Override public void mouseClicked(MouseEvent e) 
     {
-        if (mouseOnScreen)
+        //the center cannot change while a zoom is being generated
+        if (mouseOnScreen && !zoomRequest)
         {            
             Point selectedPoint = new Point(e.getX(),e.getY());
             setCenterFromMouseLocation(selectedPoint);
-            
-            updateScreen();
+            invalidateCurrentFrame(true);
         }
     }
     
@@ -682,8 +1765,11 @@ public class MandelbrotSetIllustrator extends JFrame implements MouseListener
 	 */
 	public void setCenterX(double a)
 	{
-		centerX = a;
-		setCenterFromComplex(centerX, centerY);
+		synchronized (frames)
+		{
+			setCenterFromComplex(a, centerY);
+		}
+		invalidateCurrentFrame(true);
 	}
 	
 	/** 
@@ -692,18 +1778,78 @@ public class MandelbrotSetIllustrator extends JFrame implements MouseListener
 	 */
 	public void setCenterY(double b)
 	{
-		centerY = b;
-		setCenterFromComplex(centerX, centerY);
-
+		synchronized (frames)
+		{
+			setCenterFromComplex(centerX, b);
+		}
+		invalidateCurrentFrame(true);
 	}
 
+	/**
+	 * Sets the complex number to zoom in on, redrawing the current frame only once
+	 * @param a The real component of the complex number
+	 * @param b The imaginary component of the complex number
+	 */
+	public void setCenter(double a, double b)
+	{
+		setCenterFromComplex(a, b);
+		invalidateCurrentFrame(true);
+	}
+	
 	/**
 	 * Displays a specified frame
 	 */
 	public void displayFrame(int frame)
 	{
-		displayedFrame = frame;
+		showFrame(frame, 0);
+	}
+	
+	/**
+	 * Displays a reduced copy of a frame from the frame pyramid, for flying through the frames while the user scrubs.
+	 * The level is made coarser whenever showing a frame takes longer than the scrub frame time, and finer when it takes much less.
+	 * @param frame The index of the frame
+	 */
+	public void scrubToFrame(int frame)
+	{
+		long start = System.nanoTime();
+		showFrame(frame, scrubLevel);
+		long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		
+		if (millis > SCRUB_FRAME_TIME && scrubLevel < FrameStore.MIP_LEVELS)
+		{
+			scrubLevel++;
+		}
+		else if (millis < SCRUB_FRAME_TIME / 4 && scrubLevel > 1)
+		{
+			scrubLevel--;
+		}
+	}
+	
+	/**
+	 * Returns whether the displayed frame is shown at full resolution rather than as a reduced copy
+	 * @return TRUE if the displayed frame is shown at full resolution
+	 */
+	public boolean isDisplayingFullResolution()
+	{
+		return displayedLevel == 0;
+	}
+	
+	/**
+	 * Displays a level of a frame
+	 * @param frame The index of the frame
+	 * @param level The mip level of the frame to show
+	 */
+	private void showFrame(int frame, int level)
+	{
+		synchronized (frames)
+		{
+			displayedFrame = frame;
+			displayedLevel = level;
+		}
 		zoomDialog.notifyDisplayedFrame(displayedFrame, getLastFrame());
+		
+		//draws the image on the calling thread rather than while painting
+		getDisplayedImage();
 		updateScreen();
 	}
 	
@@ -0,0 +1,146 @@
+package mandelbrotset;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The saved state of a poster being rendered: how much of the PNG file is complete, and the rows already rendered
+ * of the strips that were still being rendered. A poster render that is stopped can carry on from its latest checkpoint.
+ * Like a session file, a checkpoint is a short header followed by a deflate stream at the fastest setting.
+ */
+public class PosterCheckpoint
+{
+	private static final int MAGIC = 0x4D534350;
+	private static final int VERSION = 1;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final String TEMPORARY_SUFFIX = ".part";
+	
+	// The poster being rendered and the height of its strips
+	public final Viewport viewport;
+	public final int stripHeight;
+	
+	// Where the PNG file can be carried on from
+	public final StreamingPngWriter.Position position;
+	
+	// The RGB values of the rows already rendered of each unfinished strip, by the index of the strip
+	public final Map<Integer, int[]> partialStrips;
+	
+	/**
+	 * Constructor
+	 * @param viewport The poster being rendered
+	 * @param stripHeight The number of rows in each strip
+	 * @param position Where the PNG file can be carried on from
+	 * @param partialStrips The rows already rendered of each unfinished strip, by the index of the strip
+	 */
+	public PosterCheckpoint(Viewport viewport, int stripHeight, StreamingPngWriter.Position position, Map<Integer, int[]> partialStrips)
+	{
+		this.viewport = viewport;
+		this.stripHeight = stripHeight;
+		this.position = position;
+		this.partialStrips = partialStrips;
+	}
+	
+	/**
+	 * Writes the checkpoint to a file. It is written under a temporary name first, so that the file always holds a whole checkpoint.
+	 * @param file The file to write
+	 * @throws IOException If the checkpoint could not be written
+	 */
+	public void write(File file) throws IOException
+	{
+		File temporary = new File(file.getPath() + TEMPORARY_SUFFIX);
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try (FileOutputStream fileOut = new FileOutputStream(temporary))
+		{
+			DataOutputStream header = new DataOutputStream(new BufferedOutputStream(fileOut, BUFFER_SIZE));
+			header.writeInt(MAGIC);
+			header.writeInt(VERSION);
+			header.flush();
+			
+			DeflaterOutputStream compressed = new DeflaterOutputStream(header, deflater, BUFFER_SIZE);
+			DataOutputStream data = new DataOutputStream(new BufferedOutputStream(compressed, BUFFER_SIZE));
+			data.writeDouble(viewport.centerX);
+			data.writeDouble(viewport.centerY);
+			data.writeDouble(viewport.xRange);
+			data.writeDouble(viewport.yRange);
+			data.writeInt(viewport.width);
+			data.writeInt(viewport.height);
+			data.writeInt(viewport.maxIterations);
+			data.writeInt(stripHeight);
+			
+			data.writeInt(position.rows);
+			data.writeLong(position.bytes);
+			data.writeLong(position.adler);
+			
+			data.writeInt(partialStrips.size());
+			for (Map.Entry<Integer, int[]> strip : partialStrips.entrySet())
+			{
+				data.writeInt(strip.getKey());
+				data.writeInt(strip.getValue().length);
+				for (int rgb : strip.getValue())
+				{
+					data.writeInt(rgb);
+				}
+			}
+			
+			//the deflate stream is finished and written out before the file is synced, so that a synced checkpoint is whole
+			data.flush();
+			compressed.finish();
+			header.flush();
+			fileOut.getFD().sync();
+		}
+		finally
+		{
+			deflater.end();
+		}
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	/**
+	 * Reads a checkpoint from a file
+	 * @param file The file to read
+	 * @return The checkpoint
+	 * @throws IOException If the file could not be read or is not a checkpoint
+	 */
+	public static PosterCheckpoint read(File file) throws IOException
+	{
+		try (DataInputStream header = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)))
+		{
+			if (header.readInt() != MAGIC) throw new IOException("Not a poster checkpoint");
+			int version = header.readInt();
+			if (version != VERSION) throw new IOException("Unsupported checkpoint version " + version);
+			
+			DataInputStream data = new DataInputStream(new BufferedInputStream(new InflaterInputStream(header), BUFFER_SIZE));
+			Viewport viewport = new Viewport(data.readDouble(), data.readDouble(), data.readDouble(), data.readDouble(),
+					data.readInt(), data.readInt(), data.readInt());
+			int stripHeight = data.readInt();
+			StreamingPngWriter.Position position = new StreamingPngWriter.Position(data.readInt(), data.readLong(), data.readLong());
+			
+			Map<Integer, int[]> partialStrips = new LinkedHashMap<>();
+			int count = data.readInt();
+			for (int i = 0; i < count; i++)
+			{
+				int strip = data.readInt();
+				int[] pixels = new int[data.readInt()];
+				for (int p = 0; p < pixels.length; p++)
+				{
+					pixels[p] = data.readInt();
+				}
+				partialStrips.put(strip, pixels);
+			}
+			return new PosterCheckpoint(viewport, stripHeight, position, partialStrips);
+		}
+	}
+}
@@ -0,0 +1,311 @@
+package mandelbrotset;
+
+import java.awt.Color;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Renders images of the Mandelbrot Set that are too large to be held in memory.
+ * The image is split into horizontal strips which are rendered on every core and written to a PNG file
+ * as soon as they are finished, so memory use depends on the size of a strip rather than of the image.
+ * While rendering, a checkpoint is saved next to the file from time to time, so that a render that is stopped
+ * carries on from its latest checkpoint the next time the same poster is rendered to the same file.
+ */
+public class PosterRenderer
+{
+	/**
+	 * The approximate number of pixels in each strip
+	 */
+	private static final int STRIP_PIXELS = 1 << 20;
+	
+	/**
+	 * The longest time in milliseconds spent waiting for a strip before checking whether a checkpoint is due
+	 */
+	private static final long CHECKPOINT_POLL_MILLIS = 1000;
+	
+	private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+	
+	private final Viewport viewport;
+	private final int[] colors;
+	private final int stripHeight;
+	private final int threads;
+	
+	// The largest fraction of the render time that may be spent saving checkpoints, or 0 to save none
+	private double checkpointOverhead = 0.01;
+	
+	/**
+	 * Constructor
+	 * @param viewport The region to render and the size of the poster
+	 */
+	public PosterRenderer(Viewport viewport)
+	{
+		this.viewport = viewport;
+		
+		Color[] mandelbrotColors = MandelbrotSetIllustrator.createMandelbrotColors(viewport.maxIterations);
+		colors = new int[mandelbrotColors.length];
+		for (int i = 0; i < colors.length; i++)
+		{
+			colors[i] = mandelbrotColors[i].getRGB();
+		}
+		
+		stripHeight = Math.max(1, STRIP_PIXELS / viewport.width);
+		threads = Runtime.getRuntime().availableProcessors();
+	}
+	
+	/**
+	 * Sets how much of the render time may be spent saving checkpoints. A checkpoint is saved whenever the time spent on
+	 * checkpoints so far is within this share of the time spent rendering, so slow checkpoints are saved less often.
+	 * @param percent The largest percentage of the render time spent on checkpoints, or 0 to save no checkpoints
+	 */
+	public void setCheckpointOverhead(double percent)
+	{
+		checkpointOverhead = percent / 100;
+	}
+	
+	/**
+	 * Returns the file the checkpoint of a poster is saved to
+	 * @param file The file the poster is written to
+	 * @return The checkpoint file
+	 */
+	public static File getCheckpointFile(File file)
+	{
+		return new File(file.getPath() + CHECKPOINT_SUFFIX);
+	}
+	
+	/**
+	 * Renders the poster to a PNG file. At most two strips per core are held in memory at once.
+	 * If the file has a checkpoint saved by an earlier render of the same poster, the render carries on from it.
+	 * The checkpoint is deleted once the poster is finished.
+	 * @param file The file to write
+	 * @throws IOException If the file could not be written
+	 * @throws InterruptedException If the thread was interrupted while rendering
+	 */
+	public void render(File file) throws IOException, InterruptedException
+	{
+		int numStrips = (viewport.height + stripHeight - 1) / stripHeight;
+		int maxStripsInMemory = 2 * threads;
+		File checkpointFile = getCheckpointFile(file);
+		PosterCheckpoint checkpoint = readCheckpoint(file, checkpointFile);
+		Map<Integer, int[]> partialStrips = checkpoint == null ? Collections.<Integer, int[]>emptyMap() : checkpoint.partialStrips;
+		
+		FileOutputStream fileOut;
+		StreamingPngWriter writer;
+		if (checkpoint == null)
+		{
+			fileOut = new FileOutputStream(file);
+			writer = new StreamingPngWriter(new BufferedOutputStream(fileOut), viewport.width, viewport.height);
+		}
+		else
+		{
+			//anything written after the checkpoint was saved is thrown away and written again
+			try (RandomAccessFile poster = new RandomAccessFile(file, "rw"))
+			{
+				poster.setLength(checkpoint.position.bytes);
+			}
+			fileOut = new FileOutputStream(file, true);
+			writer = new StreamingPngWriter(new BufferedOutputStream(fileOut), viewport.width, viewport.height, checkpoint.position);
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try (StreamingPngWriter out = writer)
+		{
+			Deque<StripTask> pendingStrips = new ArrayDeque<>();
+			int nextStrip = checkpoint == null ? 0 : checkpoint.position.rows / stripHeight;
+			long startTime = System.nanoTime();
+			long checkpointTime = 0;
+			
+			for (int strip = nextStrip; strip < numStrips; strip++)
+			{
+				while (nextStrip < numStrips && pendingStrips.size() < maxStripsInMemory)
+				{
+					StripTask task = new StripTask(nextStrip, partialStrips.get(nextStrip));
+					task.future = executor.submit(task);
+					pendingStrips.add(task);
+					nextStrip++;
+				}
+				
+				//strips are written in order, while the later strips continue rendering
+				while (true)
+				{
+					StripTask task = pendingStrips.peek();
+					int[] pixels = getStrip(task.future, checkpointOverhead > 0 ? CHECKPOINT_POLL_MILLIS : 0);
+					if (pixels != null)
+					{
+						out.writeRows(pixels, getStripRows(strip));
+						pendingStrips.poll();
+					}
+					
+					//a checkpoint is only saved while the time spent on checkpoints is within its share of the render time
+					if (checkpointOverhead > 0 && checkpointTime <= checkpointOverhead * (System.nanoTime() - startTime))
+					{
+						long checkpointStart = System.nanoTime();
+						saveCheckpoint(out, fileOut, pendingStrips, checkpointFile);
+						checkpointTime += System.nanoTime() - checkpointStart;
+					}
+					if (pixels != null) break;
+				}
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+		checkpointFile.delete();
+	}
+	
+	/**
+	 * Reads the checkpoint saved by an earlier render to the same file, if it belongs to the same poster
+	 * @param file The file the poster is written to
+	 * @param checkpointFile The checkpoint file
+	 * @return The checkpoint, or null if the poster must be rendered from the start
+	 */
+	private PosterCheckpoint readCheckpoint(File file, File checkpointFile)
+	{
+		if (!checkpointFile.exists()) return null;
+		
+		try
+		{
+			PosterCheckpoint checkpoint = PosterCheckpoint.read(checkpointFile);
+			if (checkpoint.viewport.equals(viewport) && checkpoint.stripHeight == stripHeight
+					&& checkpoint.position.rows % stripHeight == 0 && file.length() >= checkpoint.position.bytes)
+			{
+				return checkpoint;
+			}
+		}
+		catch (IOException e)
+		{
+			//a checkpoint that cannot be read is no use, so the poster is rendered from the start
+		}
+		return null;
+	}
+	
+	/**
+	 * Saves a checkpoint holding everything written to the file so far and the rows already rendered of the pending strips.
+	 * The file is forced to disk before the checkpoint is saved, so that a saved checkpoint never points past the end of the file.
+	 * @param writer The writer of the poster
+	 * @param fileOut The stream of the poster file
+	 * @param pendingStrips The strips that have not been written yet
+	 * @param checkpointFile The file to save the checkpoint to
+	 * @throws IOException If the checkpoint could not be saved
+	 */
+	private void saveCheckpoint(StreamingPngWriter writer, FileOutputStream fileOut, Deque<StripTask> pendingStrips, File checkpointFile) throws IOException
+	{
+		StreamingPngWriter.Position position = writer.markPosition();
+		fileOut.getFD().sync();
+		
+		Map<Integer, int[]> partialStrips = new LinkedHashMap<>();
+		for (StripTask task : pendingStrips)
+		{
+			int rowsDone = task.rowsDone;
+			if (rowsDone > 0)
+			{
+				partialStrips.put(task.strip, Arrays.copyOf(task.pixels, rowsDone * viewport.width));
+			}
+		}
+		new PosterCheckpoint(viewport, stripHeight, position, partialStrips).write(checkpointFile);
+	}
+	
+	/**
+	 * The task that renders a single strip, which keeps count of the rows it has finished so that they can be checkpointed
+	 */
+	private class StripTask implements Callable<int[]>
+	{
+		final int strip;
+		final int[] pixels;
+		
+		// The number of rows at the top of the strip that are finished. Written after the rows themselves.
+		volatile int rowsDone;
+		
+		Future<int[]> future;
+		
+		/**
+		 * Constructor
+		 * @param strip The index of the strip
+		 * @param savedRows The rows at the top of the strip saved by a checkpoint, or null if there are none
+		 */
+		StripTask(int strip, int[] savedRows)
+		{
+			this.strip = strip;
+			pixels = new int[getStripRows(strip) * viewport.width];
+			if (savedRows != null)
+			{
+				int length = Math.min(savedRows.length, pixels.length) / viewport.width * viewport.width;
+				System.arraycopy(savedRows, 0, pixels, 0, length);
+				rowsDone = length / viewport.width;
+			}
+		}
+		
+		@Override
+		public int[] call()
+		{
+			renderStrip(this);
+			return pixels;
+		}
+	}
+	
+	/**
+	 * Renders the rows of a strip that are not finished yet
+	 * @param task The task of the strip
+	 */
+	private void renderStrip(StripTask task)
+	{
+		int firstRow = task.strip * stripHeight;
+		int rows = getStripRows(task.strip);
+		int[] pixels = task.pixels;
+		
+		for (int row = task.rowsDone, i = row * viewport.width; row < rows; row++)
+		{
+			double b = viewport.getImaginary(firstRow + row);
+			for (int x = 0; x < viewport.width; x++, i++)
+			{
+				double a = viewport.getReal(x);
+				pixels[i] = colors[MandelbrotKernel.getMandelbrotIterations(a, b, viewport.maxIterations)];
+			}
+			task.rowsDone = row + 1;
+		}
+	}
+	
+	private int getStripRows(int strip)
+	{
+		return Math.min(stripHeight, viewport.height - strip * stripHeight);
+	}
+	
+	/**
+	 * Waits for a strip to finish
+	 * @param future The future of the strip
+	 * @param timeoutMillis The longest time to wait in milliseconds, or 0 to wait until it finishes
+	 * @return The RGB values of the strip, or null if it did not finish in time
+	 * @throws InterruptedException If the thread was interrupted while waiting
+	 */
+	private static int[] getStrip(Future<int[]> future, long timeoutMillis) throws InterruptedException
+	{
+		try
+		{
+			return timeoutMillis > 0 ? future.get(timeoutMillis, TimeUnit.MILLISECONDS) : future.get();
+		}
+		catch (TimeoutException e)
+		{
+			return null;
+		}
+		catch (ExecutionException e)
+		{
+			throw new RuntimeException(e.getCause());
+		}
+	}
+}
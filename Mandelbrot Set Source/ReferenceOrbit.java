@@ -0,0 +1,172 @@
+package mandelbrotset;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+
+/**
+ * The orbit of a single point, computed with as many digits as a deep zoom needs and stored as doubles for the perturbation kernel.
+ * An orbit can be extended to more iterations without computing its start again. Extending an orbit returns a new orbit
+ * that shares the stored points of the old one, so an orbit can be read by any number of threads while it is extended.
+ */
+public class ReferenceOrbit
+{
+	// The point whose orbit this is
+	public final double centerX;
+	public final double centerY;
+	
+	// The number of significant digits the orbit is computed with
+	public final int digits;
+	
+	// The points of the orbit, starting from 0 so that point n is z after n iterations of z * z + c.
+	// The point itself is point 1. Only the first length points belong to this orbit.
+	private final double[] real;
+	private final double[] imaginary;
+	private final int length;
+	
+	// Whether the last point of the orbit has escaped, so that the orbit cannot be extended
+	private final boolean escaped;
+	
+	// The last point of the orbit with all of its digits, which the orbit is extended from
+	private final BigDecimal lastReal;
+	private final BigDecimal lastImaginary;
+	
+	private ReferenceOrbit(double centerX, double centerY, int digits, double[] real, double[] imaginary, int length,
+			boolean escaped, BigDecimal lastReal, BigDecimal lastImaginary)
+	{
+		this.centerX = centerX;
+		this.centerY = centerY;
+		this.digits = digits;
+		this.real = real;
+		this.imaginary = imaginary;
+		this.length = length;
+		this.escaped = escaped;
+		this.lastReal = lastReal;
+		this.lastImaginary = lastImaginary;
+	}
+	
+	/**
+	 * Computes the orbit of a point
+	 * @param centerX The real component of the point
+	 * @param centerY The imaginary component of the point
+	 * @param iterations The number of iterations of the kernel to cover, unless the point escapes first
+	 * @param digits The number of significant digits to compute with
+	 * @return The orbit
+	 */
+	public static ReferenceOrbit compute(double centerX, double centerY, int iterations, int digits)
+	{
+		double[] real = new double[iterations + 2];
+		double[] imaginary = new double[iterations + 2];
+		real[1] = centerX;
+		imaginary[1] = centerY;
+		ReferenceOrbit start = new ReferenceOrbit(centerX, centerY, digits, real, imaginary, 2,
+				!isInside(centerX, centerY), new BigDecimal(centerX), new BigDecimal(centerY));
+		return start.extend(iterations);
+	}
+	
+	/**
+	 * Returns the orbit extended to cover a number of iterations of the kernel, which starts from z = c rather than 0
+	 * and so needs one more point. The points already computed are not computed again.
+	 * @param iterations The number of iterations of the kernel to cover, unless the point escapes first
+	 * @return This orbit if it already reaches that far or has escaped, otherwise the extended orbit
+	 */
+	public ReferenceOrbit extend(int iterations)
+	{
+		if (reaches(iterations)) return this;
+		
+		int lastPoint = iterations + 1;
+		double[] newReal = real;
+		double[] newImaginary = imaginary;
+		if (lastPoint + 1 > real.length)
+		{
+			//grown by at least half, so that an orbit extended a little at a time is only copied a few times
+			int capacity = Math.max(lastPoint + 1, real.length + real.length / 2);
+			newReal = Arrays.copyOf(real, capacity);
+			newImaginary = Arrays.copyOf(imaginary, capacity);
+		}
+		
+		MathContext context = new MathContext(digits);
+		BigDecimal a = new BigDecimal(centerX);
+		BigDecimal b = new BigDecimal(centerY);
+		BigDecimal zA = lastReal;
+		BigDecimal zB = lastImaginary;
+		int n = length;
+		boolean hasEscaped = false;
+		
+		//the points past the old length are not part of any earlier orbit, so they can be written while it is read
+		while (n <= lastPoint && !hasEscaped)
+		{
+			BigDecimal newA = zA.multiply(zA, context).subtract(zB.multiply(zB, context), context).add(a, context);
+			zB = zA.multiply(zB, context).multiply(BigDecimal.valueOf(2), context).add(b, context);
+			zA = newA;
+			
+			newReal[n] = zA.doubleValue();
+			newImaginary[n] = zB.doubleValue();
+			hasEscaped = !isInside(newReal[n], newImaginary[n]);
+			n++;
+		}
+		return new ReferenceOrbit(centerX, centerY, digits, newReal, newImaginary, n, hasEscaped, zA, zB);
+	}
+	
+	/**
+	 * Returns whether the orbit covers a number of iterations of the kernel, or has escaped so that it cannot be extended
+	 * @param iterations The number of iterations of the kernel
+	 * @return TRUE if the orbit need not be extended to cover them
+	 */
+	public boolean reaches(int iterations)
+	{
+		return escaped || length > iterations + 1;
+	}
+	
+	/**
+	 * Returns the number of points in the orbit, including the 0 it starts from
+	 * @return The number of points
+	 */
+	public int getLength()
+	{
+		return length;
+	}
+	
+	/**
+	 * Returns whether the point escaped before the orbit was computed to the number of iterations asked for
+	 * @return TRUE if the orbit has escaped
+	 */
+	public boolean hasEscaped()
+	{
+		return escaped;
+	}
+	
+	/**
+	 * Returns the real component of a point of the orbit
+	 * @param n The number of iterations from 0
+	 * @return The real component
+	 */
+	public double getReal(int n)
+	{
+		return real[n];
+	}
+	
+	/**
+	 * Returns the imaginary component of a point of the orbit
+	 * @param n The number of iterations from 0
+	 * @return The imaginary component
+	 */
+	public double getImaginary(int n)
+	{
+		return imaginary[n];
+	}
+	
+	/**
+	 * Returns the memory taken by the stored points, which may be more than the points of this orbit
+	 * @return The number of points that can be stored
+	 */
+	public int getCapacity()
+	{
+		return real.length;
+	}
+	
+	private static boolean isInside(double a, double b)
+	{
+		return a * a + b * b < MandelbrotKernel.ESCAPE_VAL;
+	}
+}
@@ -0,0 +1,208 @@
+package mandelbrotset;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Keeps the reference orbits of recent views, so that every frame of a zoom and every tile of a frame share a single orbit.
+ * A zoom keeps its centre, so the orbit computed for its first frame serves the rest of the zoom and later zooms on the same point,
+ * extended as their maximum number of iterations grows and computed again only if they need more digits.
+ * The cache holds a bounded number of orbit points, dropping the orbits used least recently first.
+ * Orbits are computed outside the cache's lock, so that threads rendering different places compute their orbits at the same time,
+ * while threads asking for an orbit that is already being computed wait for it rather than computing it again.
+ */
+public class ReferenceOrbitCache
+{
+	/**
+	 * Digits computed beyond those needed to tell neighbouring pixels apart, since the orbit loses digits as it is iterated
+	 */
+	private static final int GUARD_DIGITS = 10;
+	
+	/**
+	 * The fewest digits an orbit is computed with. Fewer than a double holds would make the orbit worse than the plain kernel.
+	 */
+	private static final int MIN_DIGITS = 20;
+	
+	/**
+	 * Orbits are computed with a multiple of this many digits, so that a zoom does not compute its orbit again for every frame
+	 */
+	private static final int DIGIT_STEP = 10;
+	
+	private final long maxPoints;
+	
+	// The cached orbits and the orbits being computed, the most recently used first
+	private final LinkedList<Entry> entries = new LinkedList<>();
+	
+	/**
+	 * Constructor
+	 * @param maxPoints The most orbit points held at once. The orbit in use is kept even if it alone holds more.
+	 */
+	public ReferenceOrbitCache(long maxPoints)
+	{
+		this.maxPoints = maxPoints;
+	}
+	
+	/**
+	 * Returns an orbit to render a view from, computing or extending one if no cached orbit will do.
+	 * A cached orbit will do if its point lies near the middle of the view and it has enough digits.
+	 * @param viewport The view to render
+	 * @return An orbit reaching the maximum number of iterations of the view, unless its point escapes first
+	 */
+	public ReferenceOrbit getOrbit(Viewport viewport)
+	{
+		int digits = getDigits(viewport);
+		while (true)
+		{
+			Entry entry;
+			ReferenceOrbit start = null;
+			CompletableFuture<ReferenceOrbit> computing = null;
+			CompletableFuture<ReferenceOrbit> pending = null;
+			synchronized (this)
+			{
+				entry = find(viewport, digits);
+				if (entry != null && entry.orbit.isDone() && !entry.orbit.isCompletedExceptionally()
+						&& entry.orbit.getNow(null).reaches(viewport.maxIterations))
+				{
+					entries.addFirst(entry);
+					return entry.orbit.getNow(null);
+				}
+				
+				if (entry == null)
+				{
+					entry = new Entry(viewport.centerX, viewport.centerY, digits);
+					entry.orbit = computing = new CompletableFuture<>();
+				}
+				else if (!entry.orbit.isDone())
+				{
+					pending = entry.orbit;
+				}
+				else
+				{
+					//the orbit is extended, or computed again if computing it failed
+					start = entry.orbit.isCompletedExceptionally() ? null : entry.orbit.getNow(null);
+					entry.orbit = computing = new CompletableFuture<>();
+				}
+				entries.addFirst(entry);
+			}
+			
+			if (computing == null)
+			{
+				//the orbit being computed may not reach far enough, so it is looked up again once it is finished
+				try
+				{
+					pending.join();
+				}
+				catch (RuntimeException e) { }
+				continue;
+			}
+			
+			ReferenceOrbit orbit;
+			try
+			{
+				orbit = (start != null) ? start.extend(viewport.maxIterations)
+						: ReferenceOrbit.compute(viewport.centerX, viewport.centerY, viewport.maxIterations, digits);
+			}
+			catch (RuntimeException e)
+			{
+				computing.completeExceptionally(e);
+				synchronized (this)
+				{
+					entries.remove(entry);
+				}
+				throw e;
+			}
+			computing.complete(orbit);
+			synchronized (this)
+			{
+				evict();
+			}
+			return orbit;
+		}
+	}
+	
+	/**
+	 * Finds the entry of an orbit that will do for a view and takes it out of the list, so that it can be put back first
+	 * @param viewport The view to render
+	 * @param digits The number of digits the view needs
+	 * @return The entry, or null if there is none
+	 */
+	private Entry find(Viewport viewport, int digits)
+	{
+		for (Iterator<Entry> i = entries.iterator(); i.hasNext(); )
+		{
+			Entry entry = i.next();
+			if (entry.digits >= digits && Math.abs(entry.centerX - viewport.centerX) <= viewport.xRange / 4
+					&& Math.abs(entry.centerY - viewport.centerY) <= viewport.yRange / 4)
+			{
+				i.remove();
+				return entry;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Drops the orbits used least recently until the cache holds no more points than it may.
+	 * Orbits still being computed are kept, as are the most recently used.
+	 */
+	private void evict()
+	{
+		long points = 0;
+		for (Entry entry : entries)
+		{
+			points += entry.getCapacity();
+		}
+		for (Iterator<Entry> i = entries.descendingIterator(); i.hasNext() && points > maxPoints; )
+		{
+			Entry entry = i.next();
+			if (entry == entries.getFirst() || !entry.orbit.isDone()) continue;
+			
+			points -= entry.getCapacity();
+			i.remove();
+		}
+	}
+	
+	/**
+	 * Works out the number of digits an orbit needs to render a view: enough to tell neighbouring pixels apart, plus guard digits
+	 * @param viewport The view
+	 * @return The number of significant digits
+	 */
+	private static int getDigits(Viewport viewport)
+	{
+		double pixelSpacing = Math.min(viewport.xRange / viewport.width, viewport.yRange / viewport.height);
+		double largestValue = Math.max(1, Math.max(Math.abs(viewport.centerX), Math.abs(viewport.centerY)));
+		int digits = (int) Math.ceil(Math.log10(largestValue / pixelSpacing)) + GUARD_DIGITS;
+		return Math.max(MIN_DIGITS, (digits + DIGIT_STEP - 1) / DIGIT_STEP * DIGIT_STEP);
+	}
+	
+	/**
+	 * An orbit in the cache, which may still be being computed
+	 */
+	private static class Entry
+	{
+		// The point whose orbit this is and the number of digits it is computed with
+		public final double centerX;
+		public final double centerY;
+		public final int digits;
+		
+		// The orbit, replaced while the orbit is being extended. Only changed while holding the cache's lock.
+		public CompletableFuture<ReferenceOrbit> orbit;
+		
+		public Entry(double centerX, double centerY, int digits)
+		{
+			this.centerX = centerX;
+			this.centerY = centerY;
+			this.digits = digits;
+		}
+		
+		/**
+		 * Returns the number of points held by the orbit, or 0 if it is still being computed or computing it failed
+		 * @return The number of points
+		 */
+		public int getCapacity()
+		{
+			return (orbit.isDone() && !orbit.isCompletedExceptionally()) ? orbit.getNow(null).getCapacity() : 0;
+		}
+	}
+}
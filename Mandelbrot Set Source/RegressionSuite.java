@@ -0,0 +1,702 @@
+package mandelbrotset;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks every way the engine can render a frame against reference frames of a catalog of named locations,
+ * and records how long each way takes at each location.
+ * References are rendered one pixel at a time with the plain double precision kernel, with and without the edge of the set highlighted,
+ * and once more rebuilt from keyframes rendered that way, and stored as session files. Locations beyond the reach of double precision
+ * are instead iterated with as many digits as they need, and only the modes that can render them are checked there.
+ * The references are committed with the source, so run "check" from the source directory after changing the engine,
+ * and only run "record" when a change to the engine is meant to change its output, committing the new references with it.
+ * Run it without a display, for example with -Djava.awt.headless=true.
+ * Usage: RegressionSuite [check | record] [reference directory]
+ */
+public class RegressionSuite
+{
+	private static final int WIDTH = 600;
+	private static final int HEIGHT = 300;
+	
+	// The size of the locations beyond the reach of double precision
+	private static final int DEEP_WIDTH = 120;
+	private static final int DEEP_HEIGHT = 60;
+	
+	private static final int WARMUP_RUNS = 1;
+	private static final int MEASURED_RUNS = 3;
+	private static final String DEFAULT_DIRECTORY = "regression-references";
+	private static final String TIMINGS_FILE = "timings.csv";
+	
+	// Where each reference frame is stored in a location's reference file
+	private static final int PLAIN_REFERENCE = 0;
+	private static final int HIGHLIGHTED_REFERENCE = 1;
+	private static final int KEYFRAME_REFERENCE = 2;
+	
+	/**
+	 * The locations checked. The startup view is the only one shallow enough for the float kernel.
+	 * The deep locations sit at the largest magnification the illustrator allows, where double precision starts to run out.
+	 * The perturbation kernel differs from the plain kernel on points at the very edge of escaping, and at deep-elephant
+	 * the plain kernel is itself wrong on many of them. The two deepest locations, which batch jobs can reach, are only
+	 * rendered by perturbation and are small, since their references take about a microsecond an iteration.
+	 */
+	private static final Location[] LOCATIONS = {
+		new Location("startup", 0, 0, 1, 0),
+		new Location("seahorse-valley", -0.743643887037151, 0.131825904205330, 1e4, 0).allow("perturbation", 3e-4),
+		new Location("elephant-valley", 0.28693186889504513, 0.014286693904085048, 1e3, 0).allow("perturbation", 5e-5),
+		new Location("mini-brot", -1.9963761377111937, 0, 1e6, 2000).allow("perturbation", 1e-3),
+		new Location("deep-seahorse", -0.743643887037151, 0.131825904205330, MandelbrotSetIllustrator.MAX_ZOOM, 0).allow("perturbation", 1e-4),
+		new Location("deep-elephant", 0.28693186889504513, 0.014286693904085048, MandelbrotSetIllustrator.MAX_ZOOM, 0).allow("perturbation", 2e-2),
+		new Location("spiral-1e12", -0.7746806106269039, -0.1374168856037867, 1e12, 0, DEEP_WIDTH, DEEP_HEIGHT),
+		new Location("seahorse-1e15", -0.743643887037151, 0.131825904205330, 1e15, 0, DEEP_WIDTH, DEEP_HEIGHT)
+				.allow("perturbation", 3e-3).allow("tiles, chosen precision", 3e-3)
+	};
+	
+	/**
+	 * The digits that references beyond the reach of double precision are iterated with beyond those needed to tell pixels apart
+	 */
+	private static final int REFERENCE_GUARD_DIGITS = 20;
+	
+	/**
+	 * The magnifications up to which the float kernel is checked. Deeper, it gets ever more pixels wrong.
+	 */
+	private static final double MAX_FLOAT_MAGNIFICATION = 10;
+	
+	/**
+	 * The magnification between the frames of the zoom that the keyframe mode rebuilds its frame from
+	 */
+	private static final double KEYFRAME_STEP = 1.6;
+	
+	/**
+	 * The ways of rendering that are checked, with the fraction of pixels each may get wrong unless a location allows more
+	 */
+	private static final Mode[] MODES = {
+		new Mode("reference kernel", 0)
+		{
+			@Override
+			public Frame render(Viewport viewport, Frame prepared)
+			{
+				return renderReference(viewport, false);
+			}
+		},
+		new Mode("tiles, double", 0)
+		{
+			private final FrameRenderer renderer = createRenderer(KernelPrecision.DOUBLE, false);
+			
+			@Override
+			public Frame render(Viewport viewport, Frame prepared)
+			{
+				return renderer.render(viewport, null);
+			}
+		},
+		new Mode("tiles, one thread", 0)
+		{
+			private final FrameRenderer renderer = new FrameRenderer(1);
+			
+			@Override
+			public Frame render(Viewport viewport, Frame prepared)
+			{
+				renderer.setPrecision(KernelPrecision.DOUBLE);
+				return renderer.render(viewport, null);
+			}
+		},
+		new Mode("tiles, chosen precision", 0)
+		{
+			private final FrameRenderer renderer = createRenderer(null, false);
+			
+			@Override
+			public boolean covers(Location location)
+			{
+				return true;
+			}
+			
+			@Override
+			public Frame render(Viewport viewport, Frame prepared)
+			{
+				return renderer.render(viewport, null);
+			}
+		},
+		new Mode("perturbation", 0)
+		{
+			private final FrameRenderer renderer = createRenderer(KernelPrecision.PERTURBATION, false);
+			
+			@Override
+			public boolean covers(Location location)
+			{
+				return true;
+			}
+			
+			@Override
+			public Frame render(Viewport viewport, Frame prepared)
+			{
+				return renderer.render(viewport, null);
+			}
+		},
+		//the float kernel is only ever used when asked for, and rounds the odd point on the edge of escaping differently
+		new Mode("float kernel", 1e-3)
+		{
+			private final FrameRenderer renderer = createRenderer(KernelPrecision.FLOAT, false);
+			
+			@Override
+			public boolean covers(Location location)
+			{
+				return location.magnification <= MAX_FLOAT_MAGNIFICATION;
+			}
+			
+			@Override
+			public Frame render(Viewport viewport, Frame prepared)
+			{
+				return renderer.render(viewport, null);
+			}
+		},
+		new Mode("highlighted boundary", 0)
+		{
+			private final FrameRenderer renderer = createRenderer(KernelPrecision.DOUBLE, true);
+			
+			@Override
+			public int getReference()
+			{
+				return HIGHLIGHTED_REFERENCE;
+			}
+			
+			@Override
+			public Frame render(Viewport viewport, Frame prepared)
+			{
+				renderer.setHighlightBoundary(true);
+				return renderer.render(viewport, null);
+			}
+		},
+		new Mode("mirrored rows", 0)
+		{
+			private final FrameRenderer renderer = createRenderer(KernelPrecision.DOUBLE, true);
+			
+			@Override
+			public Frame render(Viewport viewport, Frame prepared)
+			{
+				return renderer.render(viewport, null);
+			}
+		},
+		new Mode("scheduled from previous frame", 0)
+		{
+			private final FrameRenderer renderer = createRenderer(KernelPrecision.DOUBLE, false);
+			
+			@Override
+			public Frame prepare(Viewport viewport)
+			{
+				Viewport outer = new Viewport(viewport.centerX, viewport.centerY, viewport.xRange * 2, viewport.yRange * 2,
+						viewport.width, viewport.height, viewport.maxIterations);
+				return renderer.render(outer, null);
+			}
+			
+			@Override
+			public Frame render(Viewport viewport, Frame prepared)
+			{
+				return renderer.render(viewport, prepared);
+			}
+		},
+		//copied pixels were computed from coordinates that can differ from the new view's in the last bit,
+		//which moves the odd point on the very edge of escaping
+		new Mode("reused after a pan", 1e-3)
+		{
+			private final FrameRenderer renderer = createRenderer(KernelPrecision.DOUBLE, false);
+			
+			@Override
+			public Frame prepare(Viewport viewport)
+			{
+				//a view a whole number of pixels away, so that most of the pixels are copied
+				double pixelWidth = viewport.xRange / viewport.width;
+				double pixelHeight = viewport.yRange / viewport.height;
+				Viewport panned = new Viewport(viewport.centerX - 37 * pixelWidth, viewport.centerY + 23 * pixelHeight,
+						viewport.xRange, viewport.yRange, viewport.width, viewport.height, viewport.maxIterations);
+				return renderer.render(panned, null);
+			}
+			
+			@Override
+			public Frame render(Viewport viewport, Frame prepared)
+			{
+				return renderer.render(viewport, prepared);
+			}
+		},
+		new Mode("whole frames in a run", 0)
+		{
+			//more workers than a frame has tiles for, so that every frame of the run is rendered whole by one worker
+			private final FrameRenderer renderer = new FrameRenderer(64);
+			
+			@Override
+			public Frame render(Viewport viewport, Frame prepared)
+			{
+				renderer.setPrecision(KernelPrecision.DOUBLE);
+				Viewport outer = new Viewport(viewport.centerX, viewport.centerY, viewport.xRange * 2, viewport.yRange * 2,
+						viewport.width, viewport.height, viewport.maxIterations);
+				final Frame[] frames = new Frame[2];
+				renderer.renderAll(Arrays.asList(outer, viewport), null, new FrameRenderer.FrameListener()
+				{
+					@Override
+					public void frameRendered(int index, Frame frame)
+					{
+						frames[index] = frame;
+					}
+				});
+				return frames[1];
+			}
+		},
+		//the frame is rebuilt from the keyframes either side of it, so most pixels come from points a fraction of a pixel away
+		//from the frame's own; it is checked against the same frame rebuilt from keyframes rendered one pixel at a time
+		new Mode("keyframes", 0)
+		{
+			private final FrameRenderer renderer = createRenderer(KernelPrecision.DOUBLE, false);
+			
+			@Override
+			public int getReference()
+			{
+				return KEYFRAME_REFERENCE;
+			}
+			
+			@Override
+			public Frame render(Viewport viewport, Frame prepared)
+			{
+				return renderFromKeyframes(viewport, renderer);
+			}
+		},
+		new Mode("frame store round trip", 0)
+		{
+			private final FrameRenderer renderer = createRenderer(KernelPrecision.DOUBLE, false);
+			
+			@Override
+			public Frame render(Viewport viewport, Frame prepared)
+			{
+				FrameStore store = new FrameStore();
+				store.add(renderer.render(viewport, prepared));
+				return store.get(0);
+			}
+		}
+	};
+	
+	private RegressionSuite() { }
+	
+	/**
+	 * Records or checks the references
+	 * @param args "check" or "record", optionally followed by the directory of the references
+	 * @throws IOException If the references or timings could not be read or written
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		boolean record = args.length > 0 && args[0].equals("record");
+		File directory = new File(args.length > 1 ? args[1] : DEFAULT_DIRECTORY);
+		
+		if (record)
+		{
+			recordReferences(directory);
+		}
+		else if (!checkReferences(directory))
+		{
+			System.exit(1);
+		}
+		System.exit(0);
+	}
+	
+	/**
+	 * Renders and stores the reference frame of every location
+	 * @param directory The directory to store the references in
+	 * @throws IOException If a reference could not be written
+	 */
+	private static void recordReferences(File directory) throws IOException
+	{
+		if (!directory.isDirectory() && !directory.mkdirs()) throw new IOException("Could not create " + directory);
+		
+		for (Location location : LOCATIONS)
+		{
+			Session session = new Session();
+			if (location.isBeyondDouble())
+			{
+				session.frames.add(renderPreciseReference(location.getViewport()));
+			}
+			else
+			{
+				session.frames.add(renderReference(location.getViewport(), false));
+				session.frames.add(renderReference(location.getViewport(), true));
+				session.frames.add(renderFromKeyframes(location.getViewport(), null));
+			}
+			try (OutputStream out = new FileOutputStream(location.getReferenceFile(directory)))
+			{
+				SessionFile.write(session, out, true);
+			}
+			System.out.println("Recorded " + location.name);
+		}
+	}
+	
+	/**
+	 * Renders every location in every mode, compares the frames with the references and records the times
+	 * @param directory The directory the references are stored in
+	 * @return TRUE if every mode matched every reference within its tolerance
+	 * @throws IOException If the timings could not be written
+	 */
+	private static boolean checkReferences(File directory) throws IOException
+	{
+		boolean passed = true;
+		String date = new Date().toString();
+		
+		try (Writer timings = new FileWriter(new File(directory, TIMINGS_FILE), true))
+		{
+			for (Location location : LOCATIONS)
+			{
+				Viewport viewport = location.getViewport();
+				List<Frame> references = readReferences(location, directory);
+				if (references == null)
+				{
+					System.out.println(location.name + ": no reference for this view, run \"record\" first");
+					passed = false;
+					continue;
+				}
+				
+				System.out.println(location.name + " (" + viewport.maxIterations + " iterations)");
+				for (Mode mode : MODES)
+				{
+					if (!mode.covers(location)) continue;
+					
+					Frame[] result = new Frame[1];
+					double time = time(mode, viewport, result);
+					Frame reference = references.get(location.isBeyondDouble() ? PLAIN_REFERENCE : mode.getReference());
+					
+					int differentPixels = 0;
+					int maxError = 0;
+					for (int i = 0; i < reference.iterations.length; i++)
+					{
+						int error = Math.abs(reference.iterations[i] - result[0].iterations[i]);
+						if (error != 0) differentPixels++;
+						maxError = Math.max(maxError, error);
+					}
+					
+					double differentFraction = (double) differentPixels / reference.iterations.length;
+					boolean modePassed = differentFraction <= location.getTolerance(mode);
+					passed &= modePassed;
+					
+					System.out.printf("  %-30s %8.1f ms  %7.3f%% of pixels differ, largest difference %d  %s%n",
+							mode.name, time, 100 * differentFraction, maxError, modePassed ? "pass" : "FAIL");
+					timings.write(date + "," + location.name + "," + mode.name + "," + time + "\n");
+				}
+			}
+		}
+		
+		System.out.println(passed ? "All modes match the references" : "Some modes do not match the references");
+		return passed;
+	}
+	
+	/**
+	 * Reads the reference frames of a location
+	 * @param location The location
+	 * @param directory The directory the references are stored in
+	 * @return The plain reference frame followed by the highlighted one and the one rebuilt from keyframes, which locations beyond the reach
+	 * of double precision do not have, or null if there are none or they show a different view from the location
+	 * @throws IOException If the references could not be read
+	 */
+	private static List<Frame> readReferences(Location location, File directory) throws IOException
+	{
+		File file = location.getReferenceFile(directory);
+		if (!file.isFile()) return null;
+		
+		try (InputStream in = new FileInputStream(file))
+		{
+			List<Frame> references = SessionFile.read(in).frames;
+			if (references.size() != (location.isBeyondDouble() ? 1 : 3)) return null;
+			if (references.size() > 1 && !references.get(HIGHLIGHTED_REFERENCE).boundaryHighlighted) return null;
+			for (Frame reference : references)
+			{
+				if (!reference.viewport.equals(location.getViewport())) return null;
+			}
+			return references;
+		}
+	}
+	
+	/**
+	 * Renders a frame one pixel at a time with the plain double precision kernel, without any of the renderer's shortcuts
+	 * @param viewport The region to render
+	 * @param highlight TRUE to give points within a pixel of the edge of the set the maximum number of iterations
+	 * @return The frame
+	 */
+	private static Frame renderReference(Viewport viewport, boolean highlight)
+	{
+		DistanceEstimate estimate = new DistanceEstimate();
+		double pixelSize = viewport.xRange / viewport.width;
+		int[] iterations = new int[viewport.width * viewport.height];
+		for (int y = 0, i = 0; y < viewport.height; y++)
+		{
+			double b = viewport.getImaginary(y);
+			for (int x = 0; x < viewport.width; x++, i++)
+			{
+				if (highlight)
+				{
+					int count = MandelbrotKernel.getMandelbrotIterations(viewport.getReal(x), b, viewport.maxIterations, estimate);
+					iterations[i] = estimate.isBoundary(pixelSize) ? viewport.maxIterations : count;
+				}
+				else
+				{
+					iterations[i] = MandelbrotKernel.getMandelbrotIterations(viewport.getReal(x), b, viewport.maxIterations);
+				}
+			}
+		}
+		return new Frame(viewport, iterations, highlight);
+	}
+	
+	/**
+	 * Renders a frame one pixel at a time with as many digits as it needs, for views beyond the reach of double precision.
+	 * Each pixel is the view's centre plus its exact offset from the centre, as the pixels cannot be told apart as doubles.
+	 * @param viewport The region to render
+	 * @return The frame
+	 */
+	private static Frame renderPreciseReference(Viewport viewport)
+	{
+		double pixelSpacing = Math.min(viewport.xRange / viewport.width, viewport.yRange / viewport.height);
+		MathContext context = new MathContext((int) Math.ceil(-Math.log10(pixelSpacing)) + REFERENCE_GUARD_DIGITS);
+		BigDecimal two = BigDecimal.valueOf(2);
+		
+		int[] iterations = new int[viewport.width * viewport.height];
+		for (int y = 0, i = 0; y < viewport.height; y++)
+		{
+			BigDecimal b = new BigDecimal(viewport.centerY).add(new BigDecimal(viewport.getImaginaryOffset(y)));
+			for (int x = 0; x < viewport.width; x++, i++)
+			{
+				BigDecimal a = new BigDecimal(viewport.centerX).add(new BigDecimal(viewport.getRealOffset(x)));
+				
+				//the same iteration as the plain kernel, which counts from z = c
+				BigDecimal zA = a;
+				BigDecimal zB = b;
+				int count = 0;
+				while (count < viewport.maxIterations)
+				{
+					double doubleA = zA.doubleValue();
+					double doubleB = zB.doubleValue();
+					if (doubleA * doubleA + doubleB * doubleB >= MandelbrotKernel.ESCAPE_VAL) break;
+					
+					count++;
+					BigDecimal newA = zA.multiply(zA, context).subtract(zB.multiply(zB, context), context).add(a, context);
+					zB = zA.multiply(zB, context).multiply(two, context).add(b, context);
+					zA = newA;
+				}
+				iterations[i] = count;
+			}
+		}
+		return new Frame(viewport, iterations);
+	}
+	
+	/**
+	 * Rebuilds a frame from the keyframes of a zoom that has the view between its first and last frames, so that it falls between two keyframes
+	 * @param viewport The view
+	 * @param renderer The renderer of the keyframes, or null to render them one pixel at a time as the references are
+	 * @return The rebuilt frame
+	 */
+	private static Frame renderFromKeyframes(Viewport viewport, FrameRenderer renderer)
+	{
+		Viewport[] zoom = new Viewport[3];
+		for (int i = 0; i < zoom.length; i++)
+		{
+			double scale = Math.pow(KEYFRAME_STEP, 1 - i);
+			zoom[i] = new Viewport(viewport.centerX, viewport.centerY, viewport.xRange * scale, viewport.yRange * scale,
+					viewport.width, viewport.height, viewport.maxIterations);
+		}
+		zoom[1] = viewport;
+		
+		KeyframeZoom keyframeZoom = new KeyframeZoom(zoom);
+		Viewport[] keyframeViewports = keyframeZoom.getKeyframeViewports();
+		Frame[] keyframes = new Frame[keyframeViewports.length];
+		for (int k = 0; k < keyframes.length; k++)
+		{
+			keyframes[k] = (renderer != null) ? renderer.render(keyframeViewports[k], null) : renderReference(keyframeViewports[k], false);
+		}
+		return keyframeZoom.reconstruct(1, keyframes);
+	}
+	
+	private static FrameRenderer createRenderer(KernelPrecision precision, boolean exploitSymmetry)
+	{
+		FrameRenderer renderer = new FrameRenderer();
+		renderer.setPrecision(precision);
+		renderer.setExploitSymmetry(exploitSymmetry);
+		return renderer;
+	}
+	
+	/**
+	 * Times how long a mode takes to render a view, after running it to let the JIT compiler settle.
+	 * The time taken to prepare each run is not counted.
+	 * @param mode The mode
+	 * @param viewport The view
+	 * @param result Receives the frame rendered by the last run
+	 * @return The mean time of a run in milliseconds
+	 */
+	private static double time(Mode mode, Viewport viewport, Frame[] result)
+	{
+		for (int run = 0; run < WARMUP_RUNS; run++)
+		{
+			result[0] = mode.render(viewport, mode.prepare(viewport));
+		}
+		
+		long totalTime = 0;
+		for (int run = 0; run < MEASURED_RUNS; run++)
+		{
+			Frame prepared = mode.prepare(viewport);
+			long start = System.nanoTime();
+			result[0] = mode.render(viewport, prepared);
+			totalTime += System.nanoTime() - start;
+		}
+		return totalTime / 1e6 / MEASURED_RUNS;
+	}
+	
+	/**
+	 * A named view of the set that is checked
+	 */
+	private static class Location
+	{
+		public final String name;
+		public final double centerX;
+		public final double centerY;
+		public final double magnification;
+		public final int maxIterations;
+		public final int width;
+		public final int height;
+		
+		// The fractions of pixels that the modes named may get wrong at this location, in place of their own
+		private final Map<String, Double> tolerances = new HashMap<>();
+		
+		/**
+		 * Constructor
+		 * @param name The name of the location, which also names its reference file
+		 * @param centerX The real component at the centre of the view
+		 * @param centerY The imaginary component at the centre of the view
+		 * @param magnification The magnification of the view, as used by the illustrator
+		 * @param maxIterations The maximum number of iterations, or 0 to use the illustrator's number for the magnification
+		 */
+		public Location(String name, double centerX, double centerY, double magnification, int maxIterations)
+		{
+			this(name, centerX, centerY, magnification, maxIterations, WIDTH, HEIGHT);
+		}
+		
+		/**
+		 * Constructor
+		 * @param name The name of the location, which also names its reference file
+		 * @param centerX The real component at the centre of the view
+		 * @param centerY The imaginary component at the centre of the view
+		 * @param magnification The magnification of the view, as used by the illustrator
+		 * @param maxIterations The maximum number of iterations, or 0 to use the illustrator's number for the magnification
+		 * @param width The width of the view in pixels
+		 * @param height The height of the view in pixels
+		 */
+		public Location(String name, double centerX, double centerY, double magnification, int maxIterations, int width, int height)
+		{
+			this.name = name;
+			this.width = width;
+			this.height = height;
+			this.centerX = centerX;
+			this.centerY = centerY;
+			this.magnification = magnification;
+			this.maxIterations = (maxIterations > 0) ? maxIterations : MandelbrotSetIllustrator.calcIterations(magnification);
+		}
+		
+		/**
+		 * Lets a mode get more pixels wrong at this location than it may elsewhere
+		 * @param modeName The name of the mode
+		 * @param tolerance The largest fraction of pixels that may differ from the reference
+		 * @return This location
+		 */
+		public Location allow(String modeName, double tolerance)
+		{
+			tolerances.put(modeName, tolerance);
+			return this;
+		}
+		
+		/**
+		 * Returns the fraction of pixels that a mode may get wrong at this location
+		 * @param mode The mode
+		 * @return The largest fraction of pixels that may differ from the reference
+		 */
+		public double getTolerance(Mode mode)
+		{
+			Double tolerance = tolerances.get(mode.name);
+			return (tolerance != null) ? tolerance : mode.tolerance;
+		}
+		
+		public Viewport getViewport()
+		{
+			return new Viewport(centerX, centerY, 4 / magnification, 2 / magnification, width, height, maxIterations);
+		}
+		
+		/**
+		 * Returns whether the location is too deep for double precision, so that its reference is iterated with more digits
+		 * @return TRUE if the location needs the perturbation kernel
+		 */
+		public boolean isBeyondDouble()
+		{
+			return KernelPrecision.select(getViewport()) == KernelPrecision.PERTURBATION;
+		}
+		
+		public File getReferenceFile(File directory)
+		{
+			return new File(directory, name + ".mset");
+		}
+	}
+	
+	/**
+	 * A way of rendering a frame
+	 */
+	private static abstract class Mode
+	{
+		public final String name;
+		
+		// The largest fraction of pixels that may differ from the reference
+		public final double tolerance;
+		
+		public Mode(String name, double tolerance)
+		{
+			this.name = name;
+			this.tolerance = tolerance;
+		}
+		
+		/**
+		 * Returns whether the mode is checked at a location. Modes are only checked where double precision suffices unless they say otherwise.
+		 * @param location The location
+		 * @return TRUE if the mode is checked there
+		 */
+		public boolean covers(Location location)
+		{
+			return !location.isBeyondDouble();
+		}
+		
+		/**
+		 * Returns which of a location's reference frames the mode is checked against where double precision suffices
+		 * @return The index of the reference frame in the location's reference file
+		 */
+		public int getReference()
+		{
+			return PLAIN_REFERENCE;
+		}
+		
+		/**
+		 * Does the work a render depends on but that should not be timed with it
+		 * @param viewport The view that will be rendered
+		 * @return A frame passed on to render, or null
+		 */
+		public Frame prepare(Viewport viewport)
+		{
+			return null;
+		}
+		
+		/**
+		 * Renders a view
+		 * @param viewport The view
+		 * @param prepared The frame returned by prepare
+		 * @return The rendered frame
+		 */
+		public abstract Frame render(Viewport viewport, Frame prepared);
+	}
+}
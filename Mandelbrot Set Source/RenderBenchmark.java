@@ -0,0 +1,784 @@
+package mandelbrotset;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures the cost of the different ways of rendering the Mandelbrot Set and prints the results.
+ * Run it without a display, for example with -Djava.awt.headless=true.
+ */
+public class RenderBenchmark
+{
+	private static final int WIDTH = 1200;
+	private static final int HEIGHT = 600;
+	private static final int WARMUP_RUNS = 3;
+	private static final int MEASURED_RUNS = 5;
+	
+	/**
+	 * The views that are benchmarked, as the starting view and a view on the edge of the set
+	 */
+	private static final Viewport[] VIEWS = {
+		new Viewport(0, 0, 4, 2, WIDTH, HEIGHT, 250),
+		new Viewport(-0.743643887037151, 0.131825904205330, 4e-4, 2e-4, WIDTH, HEIGHT, 1000)
+	};
+	
+	private RenderBenchmark() { }
+	
+	/**
+	 * Runs the benchmarks named on the command line, or all of them if none are named
+	 * @param args The names of the benchmarks to run
+	 */
+	public static void main(String[] args)
+	{
+		List<String> names = Arrays.asList(args);
+		boolean runAll = names.isEmpty();
+		
+		if (runAll || names.contains("distance")) benchmarkDistanceEstimation();
+		if (runAll || names.contains("scheduling")) benchmarkCostScheduling();
+		if (runAll || names.contains("keyframes")) benchmarkKeyframeZoom();
+		if (runAll || names.contains("precision")) benchmarkPrecision();
+		if (runAll || names.contains("symmetry")) benchmarkSymmetry();
+		if (runAll || names.contains("session")) benchmarkSession();
+		if (runAll || names.contains("memory")) benchmarkFrameStore();
+		if (runAll || names.contains("frames")) benchmarkFrameParallelism();
+		if (runAll || names.contains("layout")) benchmarkBufferLayout();
+	}
+	
+	/**
+	 * Compares the cost of the distance estimation kernel with the plain kernel
+	 */
+	private static void benchmarkDistanceEstimation()
+	{
+		System.out.println("Distance estimation kernel compared to the plain kernel");
+		for (Viewport view : VIEWS)
+		{
+			final Viewport viewport = view;
+			double plainTime = time(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					for (int y = 0; y < viewport.height; y++)
+					{
+						double b = viewport.getImaginary(y);
+						for (int x = 0; x < viewport.width; x++)
+						{
+							MandelbrotKernel.getMandelbrotIterations(viewport.getReal(x), b, viewport.maxIterations);
+						}
+					}
+				}
+			});
+			double distanceTime = time(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					DistanceEstimate estimate = new DistanceEstimate();
+					for (int y = 0; y < viewport.height; y++)
+					{
+						double b = viewport.getImaginary(y);
+						for (int x = 0; x < viewport.width; x++)
+						{
+							MandelbrotKernel.getMandelbrotIterations(viewport.getReal(x), b, viewport.maxIterations, estimate);
+						}
+					}
+				}
+			});
+			printComparison(viewport, "plain", plainTime, "distance", distanceTime);
+		}
+	}
+	
+	/**
+	 * Compares rendering the frames of a zoom with tiles in their natural order and with the most expensive tiles first
+	 */
+	private static void benchmarkCostScheduling()
+	{
+		System.out.println("Zoom frames scheduled by the previous frame's iterations compared to natural tile order");
+		final FrameRenderer renderer = new FrameRenderer();
+		final Viewport start = VIEWS[1];
+		final int numFrames = 10;
+		final double zoomPerFrame = Math.pow(10, 1.0 / numFrames);
+		
+		for (int run = 0; run < 2; run++)
+		{
+			final boolean scheduled = (run == 1);
+			double time = time(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					Frame previous = renderer.render(start, null);
+					for (int frame = 1; frame <= numFrames; frame++)
+					{
+						double scale = Math.pow(zoomPerFrame, frame);
+						Viewport viewport = new Viewport(start.centerX, start.centerY, start.xRange / scale, start.yRange / scale,
+								start.width, start.height, start.maxIterations);
+						Frame rendered = renderer.render(viewport, scheduled ? previous : null);
+						previous = rendered;
+					}
+				}
+			});
+			System.out.printf("  %s: %.1f ms per zoom of %d frames%n", scheduled ? "most expensive first" : "natural order", time, numFrames);
+		}
+	}
+	
+	/**
+	 * Compares a zoom rebuilt from keyframes with the same zoom rendered frame by frame,
+	 * and measures how far the rebuilt frames are from the real ones
+	 */
+	private static void benchmarkKeyframeZoom()
+	{
+		System.out.println("Zoom rebuilt from keyframes compared to rendering every frame");
+		FrameRenderer renderer = new FrameRenderer();
+		Viewport center = VIEWS[1];
+		double startMagnification = 1000;
+		double zoomInterval = 10;
+		int numFrames = 20;
+		
+		Viewport[] viewports = new Viewport[numFrames];
+		for (int frame = 1; frame <= numFrames; frame++)
+		{
+			double magnification = startMagnification * Math.pow(zoomInterval, (double) frame / numFrames);
+			viewports[frame - 1] = new Viewport(center.centerX, center.centerY, 4 / magnification, 2 / magnification,
+					center.width, center.height, MandelbrotSetIllustrator.calcIterations(magnification));
+		}
+		
+		long start = System.nanoTime();
+		Frame[] exactFrames = new Frame[numFrames];
+		for (int frame = 0; frame < numFrames; frame++)
+		{
+			exactFrames[frame] = renderer.render(viewports[frame], null);
+		}
+		double exactTime = (System.nanoTime() - start) / 1e6;
+		
+		start = System.nanoTime();
+		KeyframeZoom keyframeZoom = new KeyframeZoom(viewports);
+		Viewport[] keyframeViewports = keyframeZoom.getKeyframeViewports();
+		Frame[] keyframes = new Frame[keyframeViewports.length];
+		for (int k = 0; k < keyframes.length; k++)
+		{
+			keyframes[k] = renderer.render(keyframeViewports[k], null);
+		}
+		Frame[] rebuiltFrames = new Frame[numFrames];
+		for (int frame = 0; frame < numFrames; frame++)
+		{
+			rebuiltFrames[frame] = keyframeZoom.reconstruct(frame, keyframes);
+		}
+		double keyframeTime = (System.nanoTime() - start) / 1e6;
+		
+		long differentPixels = 0;
+		long totalError = 0;
+		long totalPixels = 0;
+		for (int frame = 0; frame < numFrames; frame++)
+		{
+			int[] exact = exactFrames[frame].iterations;
+			int[] rebuilt = rebuiltFrames[frame].iterations;
+			for (int i = 0; i < exact.length; i++)
+			{
+				int error = Math.abs(exact[i] - rebuilt[i]);
+				if (error != 0) differentPixels++;
+				totalError += error;
+			}
+			totalPixels += exact.length;
+		}
+		
+		System.out.printf("  %d frames: every frame %.1f ms, %d keyframes %.1f ms (%.2fx)%n",
+				numFrames, exactTime, keyframes.length, keyframeTime, keyframeTime / exactTime);
+		System.out.printf("  %.1f%% of pixels differ, mean error %.2f iterations per pixel%n",
+				100.0 * differentPixels / totalPixels, (double) totalError / totalPixels);
+	}
+	
+	/**
+	 * Compares the float and double kernels at increasing magnifications, and shows which one would be chosen
+	 */
+	private static void benchmarkPrecision()
+	{
+		System.out.println("Float kernel compared to the double kernel");
+		final FrameRenderer renderer = new FrameRenderer();
+		Viewport center = VIEWS[1];
+		
+		for (double magnification = 1; magnification <= 1e4; magnification *= 10)
+		{
+			final Viewport viewport = new Viewport(center.centerX, center.centerY, 4 / magnification, 2 / magnification,
+					center.width, center.height, MandelbrotSetIllustrator.calcIterations(magnification));
+			
+			final Frame[] results = new Frame[2];
+			double[] times = new double[2];
+			KernelPrecision[] precisions = { KernelPrecision.DOUBLE, KernelPrecision.FLOAT };
+			for (int p = 0; p < precisions.length; p++)
+			{
+				final int index = p;
+				renderer.setPrecision(precisions[p]);
+				times[p] = time(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						results[index] = renderer.render(viewport, null);
+					}
+				});
+			}
+			
+			int differentPixels = 0;
+			for (int i = 0; i < results[0].iterations.length; i++)
+			{
+				if (results[0].iterations[i] != results[1].iterations[i]) differentPixels++;
+			}
+			
+			System.out.printf("  magnification %.0e: double %.1f ms, float %.1f ms, %.3f%% of pixels differ, chosen %s%n",
+					magnification, times[0], times[1], 100.0 * differentPixels / results[0].iterations.length, KernelPrecision.select(viewport));
+		}
+	}
+	
+	/**
+	 * Compares rendering views that cross the real axis with and without mirroring rows across it
+	 */
+	private static void benchmarkSymmetry()
+	{
+		System.out.println("Views crossing the real axis with mirrored rows compared to rendering every row");
+		final FrameRenderer renderer = new FrameRenderer();
+		Viewport[] views = {
+			VIEWS[0],
+			new Viewport(-0.75, 0.25, 2, 1, WIDTH, HEIGHT, 250)
+		};
+		
+		for (final Viewport viewport : views)
+		{
+			final Frame[] results = new Frame[2];
+			double[] times = new double[2];
+			for (int run = 0; run < 2; run++)
+			{
+				final int index = run;
+				renderer.setExploitSymmetry(run == 1);
+				times[run] = time(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						results[index] = renderer.render(viewport, null);
+					}
+				});
+			}
+			
+			boolean identical = Arrays.equals(results[0].iterations, results[1].iterations);
+			printComparison(viewport, "every row", times[0], "mirrored", times[1]);
+			System.out.println("    identical to rendering every row: " + identical);
+		}
+	}
+	
+	/**
+	 * Compares rendering the frames of a zoom one after another with their tiles shared between the workers against letting
+	 * the renderer render cheap frames whole, several at once. Small frames, like those of a real-time zoom at a reduced resolution,
+	 * are where rendering whole frames should pay off.
+	 */
+	private static void benchmarkFrameParallelism()
+	{
+		System.out.println("Zoom frames rendered as a run compared to one after another, full size and at a sixteenth of the pixels");
+		final FrameRenderer renderer = new FrameRenderer();
+		final int numFrames = 20;
+		
+		for (Viewport view : VIEWS)
+		{
+			for (int cellSize = 1; cellSize <= 4; cellSize *= 4)
+			{
+				final Viewport start = view.resize(view.width / cellSize, view.height / cellSize);
+				final Frame first = renderer.render(start, null);
+				final List<Viewport> viewports = new ArrayList<>();
+				for (int frame = 1; frame <= numFrames; frame++)
+				{
+					double scale = Math.pow(2, (double) frame / numFrames);
+					viewports.add(new Viewport(start.centerX, start.centerY, start.xRange / scale, start.yRange / scale,
+							start.width, start.height, start.maxIterations + frame * 10));
+				}
+				
+				final Frame[][] results = new Frame[2][numFrames];
+				double sequentialTime = time(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						Frame previous = first;
+						for (int frame = 0; frame < numFrames; frame++)
+						{
+							previous = results[0][frame] = renderer.render(viewports.get(frame), previous);
+						}
+					}
+				});
+				double runTime = time(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						renderer.renderAll(viewports, first, new FrameRenderer.FrameListener()
+						{
+							@Override
+							public void frameRendered(int index, Frame frame)
+							{
+								results[1][index] = frame;
+							}
+						});
+					}
+				});
+				
+				boolean identical = true;
+				for (int frame = 0; frame < numFrames; frame++)
+				{
+					identical &= Arrays.equals(results[0][frame].iterations, results[1][frame].iterations);
+				}
+				printComparison(start, "one after another", sequentialTime, "as a run", runTime);
+				System.out.println("    " + start.width + "x" + start.height + ", identical to one after another: " + identical);
+			}
+		}
+	}
+	
+	/**
+	 * Compares the passes that read a rendered frame, colouring it as the illustrator does and reducing it as the frame store does,
+	 * on the row-major buffer the renderer writes against the same iterations laid out in 32x32 blocks and in Morton order.
+	 * Each pass reads its buffer in storage order and scatters its results to the row-major image or mip level, which the illustrator and the frame store need.
+	 * The first round is run without printing to let the JIT compiler settle on every pass.
+	 */
+	private static void benchmarkBufferLayout()
+	{
+		System.out.println("Frame passes on a row-major buffer compared to blocked and Morton order buffers, each read in storage order");
+		FrameRenderer renderer = new FrameRenderer();
+		for (int round = 0; round < 2; round++)
+		{
+			for (Viewport view : VIEWS)
+			{
+				compareBufferLayouts(renderer.render(view, null), round == 1);
+			}
+		}
+	}
+	
+	/**
+	 * Times the passes over a frame in each layout, and checks that every layout gives the same image and mip level
+	 * @param frame The frame
+	 * @param print Whether the times are printed
+	 */
+	private static void compareBufferLayouts(Frame frame, boolean print)
+	{
+		final Viewport view = frame.viewport;
+		final int blockSize = 32;
+		final int width = view.width;
+		final int height = view.height;
+		final int[] rowMajor = frame.iterations;
+		Color[] mandelbrotColors = MandelbrotSetIllustrator.createMandelbrotColors(view.maxIterations);
+		final int[] colors = new int[mandelbrotColors.length];
+		for (int i = 0; i < colors.length; i++)
+		{
+			colors[i] = mandelbrotColors[i].getRGB();
+		}
+		
+		//each block is stored whole, the blocks in rows, with the blocks on the right and bottom edges padded
+		final int blocksAcross = (width + blockSize - 1) / blockSize;
+		final int blocksDown = (height + blockSize - 1) / blockSize;
+		final int[] blocked = new int[blocksAcross * blocksDown * blockSize * blockSize];
+		for (int y = 0, i = 0; y < height; y++)
+		{
+			for (int x = 0; x < width; x++, i++)
+			{
+				blocked[getBlockedIndex(x, y, blocksAcross, blockSize)] = rowMajor[i];
+			}
+		}
+		
+		//every 2x2 square that touches the frame, in Morton order, so that every 4x4, 8x8 ... square is stored whole;
+		//each pixel and each square keeps where it goes in the image and the mip level, with the padding sent to a spare slot past the end
+		final int halfWidth = width / 2;
+		final int halfHeight = height / 2;
+		final int squaresAcross = (width + 1) / 2;
+		final int squaresDown = (height + 1) / 2;
+		long[] order = new long[squaresAcross * squaresDown];
+		for (int y = 0, i = 0; y < squaresDown; y++)
+		{
+			for (int x = 0; x < squaresAcross; x++, i++)
+			{
+				order[i] = ((long)(spreadBits(x) | (spreadBits(y) << 1)) << 32) | i;
+			}
+		}
+		Arrays.sort(order);
+		final int[] morton = new int[4 * order.length];
+		final int[] mortonPixels = new int[morton.length];
+		final int[] mortonSquares = new int[order.length];
+		for (int square = 0; square < order.length; square++)
+		{
+			int x = 2 * ((int)order[square] % squaresAcross);
+			int y = 2 * ((int)order[square] / squaresAcross);
+			for (int corner = 0; corner < 4; corner++)
+			{
+				int pixelX = x + (corner & 1);
+				int pixelY = y + (corner >> 1);
+				boolean inside = pixelX < width && pixelY < height;
+				morton[4 * square + corner] = inside ? rowMajor[pixelY * width + pixelX] : 0;
+				mortonPixels[4 * square + corner] = inside ? pixelY * width + pixelX : width * height;
+			}
+			mortonSquares[square] = (x / 2 < halfWidth && y / 2 < halfHeight) ? (y / 2) * halfWidth + x / 2 : halfWidth * halfHeight;
+		}
+		
+		final int[] image = new int[width * height + 1];
+		final int[] reduced = new int[halfWidth * halfHeight + 1];
+		Runnable[] colorPasses = {
+			new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					for (int i = 0; i < rowMajor.length; i++)
+					{
+						image[i] = colors[rowMajor[i]];
+					}
+				}
+			},
+			new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					for (int blockY = 0, block = 0; blockY < blocksDown; blockY++)
+					{
+						int top = blockY * blockSize;
+						int rows = Math.min(blockSize, height - top);
+						for (int blockX = 0; blockX < blocksAcross; blockX++, block += blockSize * blockSize)
+						{
+							int left = blockX * blockSize;
+							int columns = Math.min(blockSize, width - left);
+							for (int row = 0; row < rows; row++)
+							{
+								int source = block + row * blockSize;
+								int target = (top + row) * width + left;
+								for (int column = 0; column < columns; column++)
+								{
+									image[target + column] = colors[blocked[source + column]];
+								}
+							}
+						}
+					}
+				}
+			},
+			new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					for (int i = 0; i < morton.length; i++)
+					{
+						image[mortonPixels[i]] = colors[morton[i]];
+					}
+				}
+			}
+		};
+		Runnable[] reducePasses = {
+			new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					for (int y = 0, i = 0; y < halfHeight; y++)
+					{
+						int index = 2 * y * width;
+						for (int x = 0; x < halfWidth; x++, i++, index += 2)
+						{
+							reduced[i] = Math.max(Math.max(rowMajor[index], rowMajor[index + 1]), Math.max(rowMajor[index + width], rowMajor[index + width + 1]));
+						}
+					}
+				}
+			},
+			new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					//a 2x2 square never crosses the edge of a block, since blocks have an even size
+					for (int blockY = 0, block = 0; blockY < blocksDown; blockY++)
+					{
+						int top = blockY * blockSize;
+						int rows = Math.max(0, Math.min(blockSize, 2 * halfHeight - top));
+						for (int blockX = 0; blockX < blocksAcross; blockX++, block += blockSize * blockSize)
+						{
+							int left = blockX * blockSize;
+							int columns = Math.max(0, Math.min(blockSize, 2 * halfWidth - left));
+							for (int row = 0; row < rows; row += 2)
+							{
+								int source = block + row * blockSize;
+								int target = ((top + row) / 2) * halfWidth + left / 2;
+								for (int column = 0; column < columns; column += 2, source += 2, target++)
+								{
+									reduced[target] = Math.max(Math.max(blocked[source], blocked[source + 1]),
+											Math.max(blocked[source + blockSize], blocked[source + blockSize + 1]));
+								}
+							}
+						}
+					}
+				}
+			},
+			new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					for (int square = 0, index = 0; square < mortonSquares.length; square++, index += 4)
+					{
+						reduced[mortonSquares[square]] = Math.max(Math.max(morton[index], morton[index + 1]), Math.max(morton[index + 2], morton[index + 3]));
+					}
+				}
+			}
+		};
+		
+		double[] colorTimes = new double[3];
+		double[] reduceTimes = new double[3];
+		boolean identical = true;
+		int[] expectedImage = null;
+		int[] expectedReduced = null;
+		for (int layout = 0; layout < 3; layout++)
+		{
+			colorTimes[layout] = time(colorPasses[layout]);
+			reduceTimes[layout] = time(reducePasses[layout]);
+			//the spare slots hold whatever padding was written last, so they are left out of the comparison
+			int[] imagePixels = Arrays.copyOf(image, width * height);
+			int[] reducedPixels = Arrays.copyOf(reduced, halfWidth * halfHeight);
+			if (layout == 0)
+			{
+				expectedImage = imagePixels;
+				expectedReduced = reducedPixels;
+			}
+			else
+			{
+				identical &= Arrays.equals(expectedImage, imagePixels) && Arrays.equals(expectedReduced, reducedPixels);
+			}
+		}
+		
+		if (!print) return;
+		printComparison(view, "colour rows", colorTimes[0], "blocks", colorTimes[1]);
+		printComparison(view, "colour rows", colorTimes[0], "Morton", colorTimes[2]);
+		printComparison(view, "reduce rows", reduceTimes[0], "blocks", reduceTimes[1]);
+		printComparison(view, "reduce rows", reduceTimes[0], "Morton", reduceTimes[2]);
+		System.out.println("    " + width + "x" + height + ", identical to rows: " + identical);
+	}
+	
+	/**
+	 * Returns where a pixel is stored in a buffer laid out in square blocks
+	 * @param x The x-coordinate of the pixel
+	 * @param y The y-coordinate of the pixel
+	 * @param blocksAcross The number of blocks in each row of blocks
+	 * @param blockSize The width and height of a block
+	 * @return The index of the pixel
+	 */
+	private static int getBlockedIndex(int x, int y, int blocksAcross, int blockSize)
+	{
+		int block = (y / blockSize) * blocksAcross + x / blockSize;
+		return block * blockSize * blockSize + (y % blockSize) * blockSize + x % blockSize;
+	}
+	
+	/**
+	 * Spreads the bits of a coordinate out to every other bit, so that the bits of x and y can be interleaved into a Morton index
+	 * @param value The coordinate, less than 65536
+	 * @return The spread bits
+	 */
+	private static int spreadBits(int value)
+	{
+		value = (value | (value << 8)) & 0x00FF00FF;
+		value = (value | (value << 4)) & 0x0F0F0F0F;
+		value = (value | (value << 2)) & 0x33333333;
+		return (value | (value << 1)) & 0x55555555;
+	}
+	
+	/**
+	 * Compares loading the frames of a zoom from a session with rendering them again, and reports the size of the session
+	 */
+	private static void benchmarkSession()
+	{
+		System.out.println("Loading a zoom from a session file compared to rendering it again");
+		final FrameRenderer renderer = new FrameRenderer();
+		Viewport center = VIEWS[1];
+		int numFrames = 10;
+		
+		final Session session = new Session();
+		for (int frame = 0; frame < numFrames; frame++)
+		{
+			double magnification = 100 * Math.pow(10, (double) frame / numFrames);
+			Viewport viewport = new Viewport(center.centerX, center.centerY, 4 / magnification, 2 / magnification,
+					center.width, center.height, MandelbrotSetIllustrator.calcIterations(magnification));
+			session.frames.add(renderer.render(viewport, null));
+		}
+		
+		double renderTime = time(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				Frame previous = null;
+				for (Frame frame : session.frames)
+				{
+					previous = renderer.render(frame.viewport, previous);
+				}
+			}
+		});
+		
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		double saveTime = time(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					out.reset();
+					SessionFile.write(session, out, true);
+				}
+				catch (IOException e)
+				{
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		
+		final byte[] bytes = out.toByteArray();
+		final Session[] loaded = new Session[1];
+		double loadTime = time(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					loaded[0] = SessionFile.read(new ByteArrayInputStream(bytes));
+				}
+				catch (IOException e)
+				{
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		
+		boolean identical = true;
+		for (int frame = 0; frame < numFrames; frame++)
+		{
+			identical &= Arrays.equals(session.frames.get(frame).iterations, loaded[0].frames.get(frame).iterations);
+		}
+		
+		long rawBytes = 4L * numFrames * center.width * center.height;
+		System.out.printf("  %d frames: render %.1f ms, save %.1f ms, load %.1f ms%n", numFrames, renderTime, saveTime, loadTime);
+		System.out.printf("  %d bytes, %.1f%% of the raw iteration buffers, loaded frames identical: %s%n",
+				bytes.length, 100.0 * bytes.length / rawBytes, identical);
+	}
+	
+	/**
+	 * Compares keeping the frames of a long exploration on the heap, each with its image, with keeping them in a frame store.
+	 * Reports the heap and direct memory they occupy, the collections made while more frames are rendered and the length of a full collection.
+	 */
+	private static void benchmarkFrameStore()
+	{
+		System.out.println("Frames retained in a frame store compared to frames and images on the heap");
+		FrameRenderer renderer = new FrameRenderer();
+		Frame frame = renderer.render(VIEWS[1], null);
+		
+		//an iteration buffer and an image for each frame
+		long heapBytesPerFrame = 2L * 4 * WIDTH * HEIGHT;
+		int numFrames = (int) Math.min(200, Runtime.getRuntime().maxMemory() / 2 / heapBytesPerFrame);
+		int renderedFrames = 100;
+		
+		for (int run = 0; run < 2; run++)
+		{
+			boolean offHeap = (run == 1);
+			List<Object> heapFrames = new ArrayList<>();
+			FrameStore store = new FrameStore();
+			for (int i = 0; i < numFrames; i++)
+			{
+				if (offHeap)
+				{
+					store.add(frame);
+				}
+				else
+				{
+					heapFrames.add(new Frame(frame.viewport, frame.iterations.clone()));
+					heapFrames.add(new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB));
+				}
+			}
+			
+			System.gc();
+			long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+			long directUsed = getDirectMemoryUsed();
+			
+			long[] before = getCollectionTotals();
+			for (int i = 0; i < renderedFrames; i++)
+			{
+				renderer.render(VIEWS[0], null);
+			}
+			long[] after = getCollectionTotals();
+			
+			long start = System.nanoTime();
+			System.gc();
+			double fullCollectionTime = (System.nanoTime() - start) / 1e6;
+			
+			System.out.printf("  %d frames %s: heap %d MB, direct %d MB; rendering %d frames made %d collections taking %d ms; full collection %.1f ms%n",
+					numFrames, offHeap ? "in a frame store" : "on the heap", heapUsed >> 20, directUsed >> 20, renderedFrames,
+					after[0] - before[0], after[1] - before[1], fullCollectionTime);
+			
+			//keeps the retained frames reachable until they have been measured
+			if (heapFrames.size() + store.size() != numFrames * (offHeap ? 1 : 2)) throw new IllegalStateException();
+			store.clear();
+		}
+	}
+	
+	/**
+	 * Returns the number of garbage collections made so far and the total time they took
+	 * @return The number of collections, followed by their total time in milliseconds
+	 */
+	private static long[] getCollectionTotals()
+	{
+		long[] totals = new long[2];
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+		{
+			totals[0] += Math.max(0, collector.getCollectionCount());
+			totals[1] += Math.max(0, collector.getCollectionTime());
+		}
+		return totals;
+	}
+	
+	/**
+	 * Returns the amount of direct memory in use by buffers
+	 * @return The number of bytes
+	 */
+	private static long getDirectMemoryUsed()
+	{
+		for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class))
+		{
+			if (pool.getName().equals("direct")) return pool.getMemoryUsed();
+		}
+		return 0;
+	}
+	
+	/**
+	 * Times how long a task takes, after running it a few times to let the JIT compiler settle
+	 * @param task The task to time
+	 * @return The mean time of a run in milliseconds
+	 */
+	private static double time(Runnable task)
+	{
+		for (int run = 0; run < WARMUP_RUNS; run++)
+		{
+			task.run();
+		}
+		
+		long start = System.nanoTime();
+		for (int run = 0; run < MEASURED_RUNS; run++)
+		{
+			task.run();
+		}
+		return (System.nanoTime() - start) / 1e6 / MEASURED_RUNS;
+	}
+	
+	private static void printComparison(Viewport viewport, String baselineName, double baselineTime, String name, double time)
+	{
+		System.out.printf("  view at %s%+.6fi (%d iterations): %s %.1f ms, %s %.1f ms (%.2fx)%n",
+				viewport.centerX, viewport.centerY, viewport.maxIterations, baselineName, baselineTime, name, time, time / baselineTime);
+	}
+}
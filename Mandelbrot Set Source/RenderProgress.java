@@ -0,0 +1,94 @@
+package mandelbrotset;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks how far a run of frames has been rendered, down to the tiles of the frame being rendered.
+ * Render workers count the pixels of each tile they finish without taking a lock, and the user interface
+ * samples the counters at its own pace, so that reporting progress costs the render next to nothing.
+ */
+public class RenderProgress
+{
+	// Pixels of the frame being rendered that have been rendered so far
+	private final LongAdder pixelsRendered = new LongAdder();
+	
+	// Pixels of the frame being rendered that need rendering, or 0 if no frame is being rendered
+	private volatile long framePixels = 0;
+	
+	private volatile int framesFinished = 0;
+	private volatile int totalFrames = 0;
+	private volatile long startTime = 0;
+	
+	/**
+	 * Starts counting a new run of frames. Only called by the thread that finishes the frames.
+	 * @param totalFrames The number of frames in the run
+	 */
+	public void start(int totalFrames)
+	{
+		framePixels = 0;
+		framesFinished = 0;
+		this.totalFrames = totalFrames;
+		startTime = System.nanoTime();
+	}
+	
+	/**
+	 * Records that a frame has started rendering. Called before any of its tiles are handed out.
+	 * @param pixels The number of pixels that will be rendered, not counting pixels that are copied
+	 */
+	public void frameStarted(long pixels)
+	{
+		pixelsRendered.reset();
+		framePixels = pixels;
+	}
+	
+	/**
+	 * Records that some pixels of the frame being rendered are done. May be called from any thread.
+	 * @param pixels The number of pixels
+	 */
+	public void pixelsRendered(long pixels)
+	{
+		pixelsRendered.add(pixels);
+	}
+	
+	/**
+	 * Records that a frame of the run is finished, whether it was rendered or not. Only called by the thread that started the run.
+	 */
+	public void frameFinished()
+	{
+		//cleared first, so that a sample never counts the finished frame twice
+		framePixels = 0;
+		framesFinished++;
+	}
+	
+	/**
+	 * Returns how much of the run is done
+	 * @return The fraction done, from 0 to 1
+	 */
+	public double getFraction()
+	{
+		int total = totalFrames;
+		if (total == 0) return 0;
+		
+		double frames = framesFinished;
+		long pixels = framePixels;
+		if (pixels > 0)
+		{
+			frames += Math.min(1, (double) pixelsRendered.sum() / pixels);
+		}
+		return Math.min(1, frames / total);
+	}
+	
+	/**
+	 * Estimates the time left to finish the run from the rate it has progressed at so far
+	 * @return The time in milliseconds, or -1 if too little has been done to tell
+	 */
+	public long getRemainingMillis()
+	{
+		double fraction = getFraction();
+		if (fraction <= 0) return -1;
+		
+		double elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+		return (long) (elapsed * (1 - fraction) / fraction);
+	}
+}
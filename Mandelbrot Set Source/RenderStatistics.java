@@ -0,0 +1,111 @@
+package mandelbrotset;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts what the illustrator has rendered, so that the cost of its shortcuts can be checked while exploring.
+ * The counters may be updated from any thread.
+ */
+public class RenderStatistics
+{
+	// Frames of a zoom animation that were rendered
+	private final AtomicLong framesRendered = new AtomicLong();
+	
+	// Frames of a zoom animation that were displayed at a reduced resolution to keep to the frame delay
+	private final AtomicLong reducedFrames = new AtomicLong();
+	
+	// Reduced frames that have since been rendered again at full resolution
+	private final AtomicLong refinedFrames = new AtomicLong();
+	
+	// Frames a zoom took from those rendered in advance, and frames it looked for there but had to render itself
+	private final AtomicLong speculativeHits = new AtomicLong();
+	private final AtomicLong speculativeMisses = new AtomicLong();
+	
+	/**
+	 * Records that a frame of a zoom animation was rendered
+	 * @param reduced TRUE if the frame was rendered at a reduced resolution
+	 */
+	public void frameRendered(boolean reduced)
+	{
+		framesRendered.incrementAndGet();
+		if (reduced)
+		{
+			reducedFrames.incrementAndGet();
+		}
+	}
+	
+	/**
+	 * Records that a reduced frame was rendered again at full resolution
+	 */
+	public void frameRefined()
+	{
+		refinedFrames.incrementAndGet();
+	}
+	
+	/**
+	 * Records whether a zoom found a frame it needed among the frames rendered in advance
+	 * @param hit TRUE if the frame had been rendered in advance
+	 */
+	public void speculativeFrameLookedUp(boolean hit)
+	{
+		(hit ? speculativeHits : speculativeMisses).incrementAndGet();
+	}
+	
+	/**
+	 * Returns the number of frames of zoom animations that were rendered
+	 * @return The number of frames
+	 */
+	public long getFramesRendered()
+	{
+		return framesRendered.get();
+	}
+	
+	/**
+	 * Returns the number of frames that were displayed at a reduced resolution to keep to the frame delay
+	 * @return The number of frames
+	 */
+	public long getReducedFrames()
+	{
+		return reducedFrames.get();
+	}
+	
+	/**
+	 * Returns the number of reduced frames that have since been rendered again at full resolution
+	 * @return The number of frames
+	 */
+	public long getRefinedFrames()
+	{
+		return refinedFrames.get();
+	}
+	
+	/**
+	 * Returns the number of frames a zoom took from those rendered in advance
+	 * @return The number of frames
+	 */
+	public long getSpeculativeHits()
+	{
+		return speculativeHits.get();
+	}
+	
+	/**
+	 * Returns the number of frames a zoom looked for among those rendered in advance but had to render itself
+	 * @return The number of frames
+	 */
+	public long getSpeculativeMisses()
+	{
+		return speculativeMisses.get();
+	}
+	
+	/**
+	 * Describes the statistics, one per line
+	 * @return The description
+	 */
+	@Override
+	public String toString()
+	{
+		return "Frames rendered: " + getFramesRendered() + "\n"
+				+ "Frames at reduced resolution: " + getReducedFrames() + "\n"
+				+ "Reduced frames refined: " + getRefinedFrames() + "\n"
+				+ "Frames rendered in advance used: " + getSpeculativeHits() + " of " + (getSpeculativeHits() + getSpeculativeMisses());
+	}
+}
@@ -0,0 +1,68 @@
+package mandelbrotset;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Everything needed to restore an exploration: the path of zooms taken, the frames generated along it and the zoom parameters.
+ */
+public class Session
+{
+	// The zooms taken so far, in order
+	public final List<ZoomStep> zoomPath = new ArrayList<>();
+	
+	// The generated frames, in order. Frames loaded without their iterations have to be rendered again.
+	// May be replaced by a list that reads the frames from elsewhere as they are needed.
+	public List<Frame> frames = new ArrayList<>();
+	
+	// The magnification of the last frame
+	public double magnification = 1;
+	
+	// The point selected for the next zoom
+	public double selectedX;
+	public double selectedY;
+	
+	// The parameters of the next zoom
+	public double zoomInterval;
+	public int framesPerZoom;
+	public int frameDelay;
+	
+	/**
+	 * A single zoom along the path of an exploration
+	 */
+	public static class ZoomStep
+	{
+		// The point zoomed in on
+		public final double centerX;
+		public final double centerY;
+		
+		// The magnification before and after the zoom
+		public final double startMagnification;
+		public final double zoomInterval;
+		
+		// The number of frames generated for the zoom
+		public final int framesPerZoom;
+		
+		// The maximum number of iterations of the last frame of the zoom
+		public final int maxIterations;
+		
+		/**
+		 * Constructor
+		 * @param centerX The real component of the point zoomed in on
+		 * @param centerY The imaginary component of the point zoomed in on
+		 * @param startMagnification The magnification before the zoom
+		 * @param zoomInterval The amount the image was magnified by
+		 * @param framesPerZoom The number of frames generated for the zoom
+		 * @param maxIterations The maximum number of iterations of the last frame of the zoom
+		 */
+		public ZoomStep(double centerX, double centerY, double startMagnification, double zoomInterval, int framesPerZoom, int maxIterations)
+		{
+			this.centerX = centerX;
+			this.centerY = centerY;
+			this.startMagnification = startMagnification;
+			this.zoomInterval = zoomInterval;
+			this.framesPerZoom = framesPerZoom;
+			this.maxIterations = maxIterations;
+		}
+	}
+}
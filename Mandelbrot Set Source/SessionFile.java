@@ -0,0 +1,224 @@
+package mandelbrotset;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads and writes sessions in a compact binary format. After a short uncompressed header, the file is a single
+ * deflate stream written at the fastest setting, so sessions are saved and loaded as they stream rather than being built
+ * up in memory. The iterations of each frame are stored as the difference from the neighbouring pixel, which is small
+ * or zero across most of an image and compresses far better than the counts themselves.
+ */
+public class SessionFile
+{
+	private static final int MAGIC = 0x4D534553;
+	private static final int VERSION = 1;
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	private SessionFile() { }
+	
+	/**
+	 * Writes a session to a stream, which is closed afterwards
+	 * @param session The session to write
+	 * @param out The stream to write to
+	 * @param includeIterations TRUE to store the iterations of each frame, FALSE to store only where each frame was
+	 * @throws IOException If the session could not be written
+	 */
+	public static void write(Session session, OutputStream out, boolean includeIterations) throws IOException
+	{
+		DataOutputStream header = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+		header.writeInt(MAGIC);
+		header.writeInt(VERSION);
+		header.flush();
+		
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try (DataOutputStream data = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(header, deflater, BUFFER_SIZE), BUFFER_SIZE)))
+		{
+			data.writeDouble(session.magnification);
+			data.writeDouble(session.selectedX);
+			data.writeDouble(session.selectedY);
+			data.writeDouble(session.zoomInterval);
+			data.writeInt(session.framesPerZoom);
+			data.writeInt(session.frameDelay);
+			
+			data.writeInt(session.zoomPath.size());
+			for (Session.ZoomStep step : session.zoomPath)
+			{
+				data.writeDouble(step.centerX);
+				data.writeDouble(step.centerY);
+				data.writeDouble(step.startMagnification);
+				data.writeDouble(step.zoomInterval);
+				data.writeInt(step.framesPerZoom);
+				data.writeInt(step.maxIterations);
+			}
+			
+			data.writeInt(session.frames.size());
+			data.writeBoolean(includeIterations);
+			for (Frame frame : session.frames)
+			{
+				writeViewport(data, frame.viewport);
+				data.writeBoolean(frame.boundaryHighlighted);
+				if (includeIterations)
+				{
+					writeIterations(data, frame);
+				}
+			}
+		}
+		finally
+		{
+			deflater.end();
+		}
+	}
+	
+	/**
+	 * Reads a session from a stream, which is closed afterwards
+	 * @param in The stream to read from
+	 * @return The session. If the iterations of the frames were not stored, its frames have empty iteration buffers.
+	 * @throws IOException If the stream is not a valid session
+	 */
+	public static Session read(InputStream in) throws IOException
+	{
+		DataInputStream header = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+		if (header.readInt() != MAGIC) throw new IOException("Not a Mandelbrot Set session file");
+		int version = header.readInt();
+		if (version != VERSION) throw new IOException("Unsupported session file version " + version);
+		
+		Inflater inflater = new Inflater();
+		try (DataInputStream data = new DataInputStream(new BufferedInputStream(new InflaterInputStream(header, inflater, BUFFER_SIZE), BUFFER_SIZE)))
+		{
+			Session session = new Session();
+			session.magnification = data.readDouble();
+			session.selectedX = data.readDouble();
+			session.selectedY = data.readDouble();
+			session.zoomInterval = data.readDouble();
+			session.framesPerZoom = data.readInt();
+			session.frameDelay = data.readInt();
+			
+			int numSteps = data.readInt();
+			for (int step = 0; step < numSteps; step++)
+			{
+				session.zoomPath.add(new Session.ZoomStep(data.readDouble(), data.readDouble(), data.readDouble(), data.readDouble(),
+						data.readInt(), data.readInt()));
+			}
+			
+			int numFrames = data.readInt();
+			boolean includesIterations = data.readBoolean();
+			for (int frame = 0; frame < numFrames; frame++)
+			{
+				Viewport viewport = readViewport(data);
+				boolean boundaryHighlighted = data.readBoolean();
+				int[] iterations = includesIterations ? readIterations(data, viewport) : new int[0];
+				session.frames.add(new Frame(viewport, iterations, boundaryHighlighted));
+			}
+			return session;
+		}
+		catch (EOFException e)
+		{
+			throw new IOException("The session file is incomplete", e);
+		}
+		finally
+		{
+			inflater.end();
+		}
+	}
+	
+	private static void writeViewport(DataOutputStream data, Viewport viewport) throws IOException
+	{
+		data.writeDouble(viewport.centerX);
+		data.writeDouble(viewport.centerY);
+		data.writeDouble(viewport.xRange);
+		data.writeDouble(viewport.yRange);
+		data.writeInt(viewport.width);
+		data.writeInt(viewport.height);
+		data.writeInt(viewport.maxIterations);
+	}
+	
+	private static Viewport readViewport(DataInputStream data) throws IOException
+	{
+		return new Viewport(data.readDouble(), data.readDouble(), data.readDouble(), data.readDouble(),
+				data.readInt(), data.readInt(), data.readInt());
+	}
+	
+	/**
+	 * Writes the iterations of a frame, each as the difference from the pixel to its left,
+	 * or from the pixel above for the first pixel of a row
+	 * @param data The stream to write to
+	 * @param frame The frame
+	 */
+	private static void writeIterations(DataOutputStream data, Frame frame) throws IOException
+	{
+		int width = frame.viewport.width;
+		int[] iterations = frame.iterations;
+		
+		for (int i = 0; i < iterations.length; i++)
+		{
+			int predicted = (i % width != 0) ? iterations[i - 1] : (i >= width ? iterations[i - width] : 0);
+			writeVarInt(data, zigZag(iterations[i] - predicted));
+		}
+	}
+	
+	private static int[] readIterations(DataInputStream data, Viewport viewport) throws IOException
+	{
+		int width = viewport.width;
+		int[] iterations = new int[width * viewport.height];
+		
+		for (int i = 0; i < iterations.length; i++)
+		{
+			int predicted = (i % width != 0) ? iterations[i - 1] : (i >= width ? iterations[i - width] : 0);
+			iterations[i] = predicted + unZigZag(readVarInt(data));
+			if (iterations[i] < 0 || iterations[i] > viewport.maxIterations)
+			{
+				throw new IOException("The session file is corrupt");
+			}
+		}
+		return iterations;
+	}
+	
+	/**
+	 * Maps signed values to unsigned ones so that values close to zero stay small: 0, -1, 1, -2, 2 become 0, 1, 2, 3, 4
+	 */
+	private static int zigZag(int value)
+	{
+		return (value << 1) ^ (value >> 31);
+	}
+	
+	private static int unZigZag(int value)
+	{
+		return (value >>> 1) ^ -(value & 1);
+	}
+	
+	/**
+	 * Writes a value seven bits at a time, so small values take a single byte
+	 */
+	private static void writeVarInt(DataOutputStream data, int value) throws IOException
+	{
+		while ((value & ~0x7F) != 0)
+		{
+			data.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		data.writeByte(value);
+	}
+	
+	private static int readVarInt(DataInputStream data) throws IOException
+	{
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7)
+		{
+			int b = data.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) return value;
+		}
+		throw new IOException("The session file is corrupt");
+	}
+}
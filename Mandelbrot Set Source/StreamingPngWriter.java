@@ -0,0 +1,261 @@
+package mandelbrotset;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes an RGB PNG image a few rows at a time, so that the whole image never has to be held in memory.
+ * Each group of rows is flushed out as its own IDAT chunk as soon as it is written.
+ * The zlib wrapper around the compressed rows is written by hand rather than by the deflater, so that the writer can
+ * mark a position that a later writer can carry on from after the file is cut back to it.
+ */
+public class StreamingPngWriter implements Closeable
+{
+	private static final byte[] PNG_SIGNATURE = { (byte) 137, 80, 78, 71, 13, 10, 26, 10 };
+	private static final int BIT_DEPTH = 8;
+	private static final int COLOR_TYPE_RGB = 2;
+	private static final int FILTER_NONE = 0;
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	/**
+	 * The zlib header for a deflate stream with a 32K window compressed at the fastest setting
+	 */
+	private static final byte[] ZLIB_HEADER = { 0x78, 0x01 };
+	
+	/**
+	 * The modulus of the Adler-32 checksum, and the most bytes that can be summed before the sums must be reduced by it
+	 */
+	private static final int ADLER_MODULUS = 65521;
+	private static final int ADLER_MAX_RUN = 5552;
+	
+	private final DataOutputStream out;
+	private final int width;
+	private final int height;
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+	private final byte[] rowBytes;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private final CRC32 crc = new CRC32();
+	
+	private int rowsWritten = 0;
+	private long bytesWritten = 0;
+	
+	// The two sums of the Adler-32 checksum of the uncompressed rows
+	private long adlerA = 1;
+	private long adlerB = 0;
+	
+	/**
+	 * Constructor. Writes the PNG header straight away.
+	 * @param out The stream the image is written to
+	 * @param width The width of the image in pixels
+	 * @param height The height of the image in pixels
+	 * @throws IOException If the header could not be written
+	 */
+	public StreamingPngWriter(OutputStream out, int width, int height) throws IOException
+	{
+		this.out = new DataOutputStream(out);
+		this.width = width;
+		this.height = height;
+		rowBytes = new byte[1 + 3 * width];
+		
+		this.out.write(PNG_SIGNATURE);
+		bytesWritten += PNG_SIGNATURE.length;
+		
+		byte[] header = new byte[13];
+		writeInt(header, 0, width);
+		writeInt(header, 4, height);
+		header[8] = BIT_DEPTH;
+		header[9] = COLOR_TYPE_RGB;
+		writeChunk("IHDR", header, header.length);
+		writeChunk("IDAT", ZLIB_HEADER, ZLIB_HEADER.length);
+	}
+	
+	/**
+	 * Constructor. Carries on writing an image from a position marked by an earlier writer.
+	 * @param out The stream the image is written to, which must carry on from the first position.bytes bytes of the earlier image
+	 * @param width The width of the image in pixels
+	 * @param height The height of the image in pixels
+	 * @param position The position marked by the earlier writer
+	 */
+	public StreamingPngWriter(OutputStream out, int width, int height, Position position)
+	{
+		this.out = new DataOutputStream(out);
+		this.width = width;
+		this.height = height;
+		rowBytes = new byte[1 + 3 * width];
+		
+		rowsWritten = position.rows;
+		bytesWritten = position.bytes;
+		adlerA = position.adler & 0xFFFF;
+		adlerB = position.adler >>> 16;
+	}
+	
+	/**
+	 * Writes the next rows of the image and flushes them to the stream
+	 * @param pixels The RGB values of the rows, one row after another
+	 * @param rowCount The number of rows contained in pixels
+	 * @throws IOException If the rows could not be written
+	 */
+	public void writeRows(int[] pixels, int rowCount) throws IOException
+	{
+		if (rowsWritten + rowCount > height)
+		{
+			throw new IllegalStateException("More rows were written than the image contains");
+		}
+		
+		for (int row = 0; row < rowCount; row++)
+		{
+			rowBytes[0] = FILTER_NONE;
+			int offset = row * width;
+			for (int x = 0, i = 1; x < width; x++)
+			{
+				int rgb = pixels[offset + x];
+				rowBytes[i++] = (byte) (rgb >> 16);
+				rowBytes[i++] = (byte) (rgb >> 8);
+				rowBytes[i++] = (byte) rgb;
+			}
+			updateAdler(rowBytes);
+			deflater.setInput(rowBytes);
+			while (!deflater.needsInput())
+			{
+				writeCompressedData(Deflater.NO_FLUSH);
+			}
+		}
+		rowsWritten += rowCount;
+		
+		writeCompressedData(Deflater.SYNC_FLUSH);
+		out.flush();
+	}
+	
+	/**
+	 * Marks the current position, which a later writer can carry on from if the image is cut back to it.
+	 * The compressed data written so far is flushed so that nothing written afterwards depends on it.
+	 * @return The position
+	 * @throws IOException If the compressed data could not be written
+	 */
+	public Position markPosition() throws IOException
+	{
+		writeCompressedData(Deflater.FULL_FLUSH);
+		out.flush();
+		return new Position(rowsWritten, bytesWritten, (adlerB << 16) | adlerA);
+	}
+	
+	/**
+	 * Finishes the image and closes the underlying stream
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			if (rowsWritten == height)
+			{
+				deflater.finish();
+				while (!deflater.finished())
+				{
+					writeCompressedData(Deflater.NO_FLUSH);
+				}
+				byte[] checksum = new byte[4];
+				writeInt(checksum, 0, (int) ((adlerB << 16) | adlerA));
+				writeChunk("IDAT", checksum, checksum.length);
+				writeChunk("IEND", buffer, 0);
+			}
+		}
+		finally
+		{
+			deflater.end();
+			out.close();
+		}
+	}
+	
+	/**
+	 * Writes out whatever compressed data the deflater produces as IDAT chunks
+	 * @param flush The flush mode to pass on to the deflater
+	 */
+	private void writeCompressedData(int flush) throws IOException
+	{
+		int length;
+		do
+		{
+			length = deflater.deflate(buffer, 0, buffer.length, flush);
+			if (length > 0)
+			{
+				writeChunk("IDAT", buffer, length);
+			}
+		}
+		while (length == buffer.length);
+	}
+	
+	/**
+	 * Adds bytes to the Adler-32 checksum of the uncompressed data
+	 * @param bytes The bytes
+	 */
+	private void updateAdler(byte[] bytes)
+	{
+		for (int start = 0; start < bytes.length; start += ADLER_MAX_RUN)
+		{
+			int end = Math.min(bytes.length, start + ADLER_MAX_RUN);
+			for (int i = start; i < end; i++)
+			{
+				adlerA += bytes[i] & 0xFF;
+				adlerB += adlerA;
+			}
+			adlerA %= ADLER_MODULUS;
+			adlerB %= ADLER_MODULUS;
+		}
+	}
+	
+	private void writeChunk(String type, byte[] data, int length) throws IOException
+	{
+		byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+		crc.reset();
+		crc.update(typeBytes);
+		crc.update(data, 0, length);
+		
+		out.writeInt(length);
+		out.write(typeBytes);
+		out.write(data, 0, length);
+		out.writeInt((int) crc.getValue());
+		bytesWritten += 12 + length;
+	}
+	
+	private static void writeInt(byte[] bytes, int offset, int value)
+	{
+		bytes[offset] = (byte) (value >>> 24);
+		bytes[offset + 1] = (byte) (value >>> 16);
+		bytes[offset + 2] = (byte) (value >>> 8);
+		bytes[offset + 3] = (byte) value;
+	}
+	
+	/**
+	 * A position in an image being written, which a writer can carry on from
+	 */
+	public static class Position
+	{
+		// The number of rows written before the position
+		public final int rows;
+		
+		// The length of the image up to the position
+		public final long bytes;
+		
+		// The Adler-32 checksum of the uncompressed rows before the position
+		public final long adler;
+		
+		/**
+		 * Constructor
+		 * @param rows The number of rows written before the position
+		 * @param bytes The length of the image up to the position
+		 * @param adler The Adler-32 checksum of the uncompressed rows before the position
+		 */
+		public Position(int rows, long bytes, long adler)
+		{
+			this.rows = rows;
+			this.bytes = bytes;
+			this.adler = adler;
+		}
+	}
+}
@@ -0,0 +1,222 @@
+package mandelbrotset;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Suggests points worth zooming in on. Candidate regions across the current view, each the size of the view after the next zoom,
+ * are probed at a very low resolution in parallel with the same kernel the illustrator uses, and ranked by how much detail they hold.
+ * The probes of a suggestion share a fixed budget of iterations, so a suggestion takes about the same time at any depth.
+ */
+public class TargetExplorer
+{
+	/**
+	 * The number of candidate regions along each side of the view
+	 */
+	private static final int CANDIDATES_PER_SIDE = 8;
+	
+	// The number of samples along each side of a probe
+	private static final int MIN_PROBE_SIZE = 4;
+	private static final int MAX_PROBE_SIZE = 16;
+	
+	/**
+	 * The most iterations that the probes of a single suggestion may take between them
+	 */
+	private static final long ITERATION_BUDGET = 20000000;
+	
+	/**
+	 * The lowest score of a region that is suggested, below which it is as good as flat
+	 */
+	private static final double MIN_SCORE = 0.01;
+	
+	private final ExecutorService executor;
+	
+	/**
+	 * Constructor. Probes on a thread for each core, at a low priority so that rendering comes first.
+	 */
+	public TargetExplorer()
+	{
+		executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new DaemonThreadFactory("Target Explorer", Thread.MIN_PRIORITY));
+	}
+	
+	/**
+	 * Probes candidate regions across a view and ranks them by the detail they hold
+	 * @param viewport The current view. Only its region of the complex plane is used.
+	 * @param zoomInterval The amount the next zoom magnifies by, which gives the size of each candidate region
+	 * @param maxIterations The maximum number of iterations the next zoom will render with
+	 * @return The candidates that hold enough detail, best first
+	 * @throws InterruptedException If the thread was interrupted while waiting for the probes
+	 */
+	public List<Target> findTargets(Viewport viewport, double zoomInterval, int maxIterations) throws InterruptedException
+	{
+		int candidates = CANDIDATES_PER_SIDE * CANDIDATES_PER_SIDE;
+		
+		//as many samples as the budget allows at full depth, then fewer iterations if even the smallest probes would overspend
+		int probeSize = (int) Math.sqrt((double) ITERATION_BUDGET / ((long) candidates * maxIterations));
+		probeSize = Math.max(MIN_PROBE_SIZE, Math.min(MAX_PROBE_SIZE, probeSize));
+		int probeIterations = (int) Math.max(1, Math.min(maxIterations, ITERATION_BUDGET / ((long) candidates * probeSize * probeSize)));
+		
+		double xRange = viewport.xRange / zoomInterval;
+		double yRange = viewport.yRange / zoomInterval;
+		
+		List<Future<Target>> probes = new ArrayList<>(candidates);
+		for (int row = 0; row < CANDIDATES_PER_SIDE; row++)
+		{
+			for (int column = 0; column < CANDIDATES_PER_SIDE; column++)
+			{
+				double a = viewport.centerX + viewport.xRange * ((column + 0.5) / CANDIDATES_PER_SIDE - 0.5);
+				double b = viewport.centerY + viewport.yRange * (0.5 - (row + 0.5) / CANDIDATES_PER_SIDE);
+				probes.add(executor.submit(createProbe(new Viewport(a, b, xRange, yRange, probeSize, probeSize, probeIterations))));
+			}
+		}
+		
+		List<Target> targets = new ArrayList<>();
+		try
+		{
+			for (Future<Target> probe : probes)
+			{
+				Target target = probe.get();
+				if (target.score >= MIN_SCORE) targets.add(target);
+			}
+		}
+		catch (ExecutionException e)
+		{
+			throw new RuntimeException(e.getCause());
+		}
+		finally
+		{
+			for (Future<Target> probe : probes)
+			{
+				probe.cancel(true);
+			}
+		}
+		
+		Collections.sort(targets, new Comparator<Target>()
+		{
+			@Override
+			public int compare(Target t1, Target t2)
+			{
+				return Double.compare(t2.score, t1.score);
+			}
+		});
+		return targets;
+	}
+	
+	/**
+	 * Stops the probing threads
+	 */
+	public void shutdown()
+	{
+		executor.shutdownNow();
+	}
+	
+	/**
+	 * Creates the task that probes a single candidate region
+	 * @param probe The candidate region and the resolution it is probed at
+	 * @return The task, which returns the candidate's target
+	 */
+	private static Callable<Target> createProbe(final Viewport probe)
+	{
+		return new Callable<Target>()
+		{
+			@Override
+			public Target call()
+			{
+				return probe(probe);
+			}
+		};
+	}
+	
+	/**
+	 * Samples a candidate region and scores it by its boundary density plus the variance of its iterations.
+	 * The boundary density is the fraction of neighbouring samples of which exactly one is in the set,
+	 * and the variance is that of the logarithm of the iterations of the samples that escaped, scaled to be at most 1.
+	 * The target is the escaped sample that took the most iterations, as it lies closest to the set.
+	 * @param probe The candidate region and the resolution it is probed at
+	 * @return The target of the candidate region
+	 */
+	private static Target probe(Viewport probe)
+	{
+		int size = probe.width;
+		int[] iterations = new int[size * size];
+		for (int y = 0, i = 0; y < size; y++)
+		{
+			double b = probe.getImaginary(y);
+			for (int x = 0; x < size; x++, i++)
+			{
+				iterations[i] = MandelbrotKernel.getMandelbrotIterations(probe.getReal(x), b, probe.maxIterations);
+			}
+		}
+		
+		int boundaryPairs = 0;
+		int escaped = 0;
+		double sum = 0;
+		double sumOfSquares = 0;
+		int deepest = -1;
+		for (int y = 0, i = 0; y < size; y++)
+		{
+			for (int x = 0; x < size; x++, i++)
+			{
+				boolean inSet = (iterations[i] == probe.maxIterations);
+				if (x + 1 < size && inSet != (iterations[i + 1] == probe.maxIterations)) boundaryPairs++;
+				if (y + 1 < size && inSet != (iterations[i + size] == probe.maxIterations)) boundaryPairs++;
+				
+				if (!inSet)
+				{
+					double logIterations = Math.log(iterations[i] + 1);
+					escaped++;
+					sum += logIterations;
+					sumOfSquares += logIterations * logIterations;
+					if (deepest == -1 || iterations[i] > iterations[deepest]) deepest = i;
+				}
+			}
+		}
+		
+		double boundaryDensity = (double) boundaryPairs / (2 * size * (size - 1));
+		double variance = 0;
+		if (escaped > 1)
+		{
+			double mean = sum / escaped;
+			double logMax = Math.log(probe.maxIterations + 1);
+			
+			//the variance of values between 0 and logMax is at most a quarter of logMax squared
+			variance = Math.max(0, sumOfSquares / escaped - mean * mean) / (logMax * logMax / 4);
+		}
+		
+		if (deepest == -1) return new Target(probe.centerX, probe.centerY, 0);
+		return new Target(probe.getReal(deepest % size), probe.getImaginary(deepest / size), boundaryDensity + variance);
+	}
+	
+	/**
+	 * A suggested point to zoom in on
+	 */
+	public static class Target
+	{
+		// The point to zoom in on
+		public final double centerX;
+		public final double centerY;
+		
+		// How much detail the region around the point holds, from 0 to 2
+		public final double score;
+		
+		/**
+		 * Constructor
+		 * @param centerX The real component of the point
+		 * @param centerY The imaginary component of the point
+		 * @param score How much detail the region around the point holds
+		 */
+		public Target(double centerX, double centerY, double score)
+		{
+			this.centerX = centerX;
+			this.centerY = centerY;
+			this.score = score;
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package mandelbrotset;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The time taken and the number of iterations computed by each tile of a rendered frame.
+ * Parts of the frame that were copied rather than rendered have no tiles.
+ */
+public class TileProfile
+{
+	// The region that was rendered
+	public final Viewport viewport;
+	
+	private final List<TileSample> samples;
+	
+	/**
+	 * Constructor
+	 * @param viewport The region that was rendered
+	 * @param samples The measurements of each tile that was rendered
+	 */
+	public TileProfile(Viewport viewport, List<TileSample> samples)
+	{
+		this.viewport = viewport;
+		this.samples = Collections.unmodifiableList(samples);
+	}
+	
+	/**
+	 * Returns the measurements of each tile that was rendered, in the order the tiles were handed out
+	 * @return The measurements
+	 */
+	public List<TileSample> getSamples()
+	{
+		return samples;
+	}
+	
+	/**
+	 * Returns the longest time taken by a single tile
+	 * @return The time in nanoseconds
+	 */
+	public long getMaxNanos()
+	{
+		long max = 0;
+		for (TileSample sample : samples)
+		{
+			max = Math.max(max, sample.nanos);
+		}
+		return max;
+	}
+	
+	/**
+	 * Writes the measurements as comma-separated values, one tile to a line after a line of headings
+	 * @param out The writer to write to
+	 * @throws IOException If the measurements could not be written
+	 */
+	public void writeCsv(Writer out) throws IOException
+	{
+		out.write("x,y,width,height,nanoseconds,iterations,nanoseconds per iteration\n");
+		for (TileSample sample : samples)
+		{
+			double nanosPerIteration = (sample.iterations > 0) ? (double) sample.nanos / sample.iterations : 0;
+			out.write(sample.x + "," + sample.y + "," + sample.width + "," + sample.height + ","
+					+ sample.nanos + "," + sample.iterations + "," + nanosPerIteration + "\n");
+		}
+		out.flush();
+	}
+	
+	/**
+	 * The measurements of a single tile
+	 */
+	public static class TileSample
+	{
+		// The position and size of the tile in pixels
+		public final int x;
+		public final int y;
+		public final int width;
+		public final int height;
+		
+		// The time taken to render the tile
+		public final long nanos;
+		
+		// The total number of iterations of the pixels of the tile
+		public final long iterations;
+		
+		/**
+		 * Constructor
+		 * @param x The left edge of the tile
+		 * @param y The top edge of the tile
+		 * @param width The width of the tile
+		 * @param height The height of the tile
+		 * @param nanos The time taken to render the tile in nanoseconds
+		 * @param iterations The total number of iterations of the pixels of the tile
+		 */
+		public TileSample(int x, int y, int width, int height, long nanos, long iterations)
+		{
+			this.x = x;
+			this.y = y;
+			this.width = width;
+			this.height = height;
+			this.nanos = nanos;
+			this.iterations = iterations;
+		}
+	}
+}
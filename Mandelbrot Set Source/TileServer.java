@@ -0,0 +1,349 @@
+package mandelbrotset;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves tiles of the Mandelbrot Set over HTTP on the local machine, for use by a web viewer.
+ * Level 0 covers the starting view of the illustrator with two tiles side by side, and each level doubles the
+ * number of tiles in each direction. Tiles are requested as /tiles/{level}/{x}/{y}.png for an image, or .raw for the
+ * number of iterations at each pixel as big-endian 32-bit integers, one row after another.
+ * Identical requests that arrive while a tile is being rendered share the render, and finished tiles are kept in a
+ * cache that drops the least recently used tiles once it is full.
+ */
+public class TileServer
+{
+	public static final int TILE_SIZE = 256;
+	public static final int DEFAULT_PORT = 8080;
+	public static final int MAX_LEVEL = 40;
+	
+	/**
+	 * The header telling the client whether the tile came from the cache, from a render already in progress, or from a new render
+	 */
+	public static final String TILE_SOURCE_HEADER = "X-Tile-Source";
+	
+	private static final String TILES_PATH = "/tiles/";
+	private static final Pattern TILE_PATTERN = Pattern.compile("/tiles/(\\d+)/(\\d+)/(\\d+)\\.(png|raw)");
+	private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+	private static final long DEFAULT_CACHE_BYTES = 64L << 20;
+	
+	// The region of the complex plane covered by level 0
+	private static final double WORLD_MIN_X = -2;
+	private static final double WORLD_MAX_Y = 1;
+	private static final double LEVEL_0_TILE_RANGE = 2;
+	
+	private final HttpServer server;
+	private final ExecutorService requestExecutor;
+	private final FrameRenderer frameRenderer;
+	private final TileCache cache;
+	private final Map<String, CompletableFuture<byte[]>> tilesInProgress = new ConcurrentHashMap<>();
+	private final Map<Integer, int[]> palettes = new ConcurrentHashMap<>();
+	
+	/**
+	 * Constructor. The server only listens on the loopback address.
+	 * @param port The port to listen on, or 0 to choose a free port
+	 * @param cacheBytes The largest total size of the tiles kept in the cache
+	 * @throws IOException If the server could not be started
+	 */
+	public TileServer(int port, long cacheBytes) throws IOException
+	{
+		int threads = Runtime.getRuntime().availableProcessors();
+		frameRenderer = new FrameRenderer(threads);
+		cache = new TileCache(cacheBytes);
+		requestExecutor = Executors.newFixedThreadPool(4 * threads, new DaemonThreadFactory("Tile Request"));
+		
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.setExecutor(requestExecutor);
+		server.createContext(TILES_PATH, new HttpHandler()
+		{
+			@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				handleTileRequest(exchange);
+			}
+		});
+	}
+	
+	/**
+	 * Starts accepting requests
+	 */
+	public void start()
+	{
+		server.start();
+	}
+	
+	/**
+	 * Stops the server, waiting briefly for requests in progress to finish
+	 */
+	public void stop()
+	{
+		server.stop(1);
+		requestExecutor.shutdownNow();
+	}
+	
+	/**
+	 * Returns the port the server is listening on
+	 * @return The port
+	 */
+	public int getPort()
+	{
+		return server.getAddress().getPort();
+	}
+	
+	/**
+	 * Answers a single request for a tile
+	 * @param exchange The request and its response
+	 */
+	private void handleTileRequest(HttpExchange exchange) throws IOException
+	{
+		try
+		{
+			if (!"GET".equals(exchange.getRequestMethod()))
+			{
+				sendError(exchange, 405, "Only GET is supported");
+				return;
+			}
+			
+			Matcher matcher = TILE_PATTERN.matcher(exchange.getRequestURI().getPath());
+			if (!matcher.matches())
+			{
+				sendError(exchange, 404, "Tiles are requested as /tiles/{level}/{x}/{y}.png or .raw");
+				return;
+			}
+			
+			int level;
+			long x;
+			long y;
+			try
+			{
+				level = Integer.parseInt(matcher.group(1));
+				x = Long.parseLong(matcher.group(2));
+				y = Long.parseLong(matcher.group(3));
+			}
+			catch (NumberFormatException e)
+			{
+				sendError(exchange, 404, "No such tile");
+				return;
+			}
+			boolean png = matcher.group(4).equals("png");
+			
+			if (level > MAX_LEVEL || x >= 2L << level || y >= 1L << level)
+			{
+				sendError(exchange, 404, "No such tile");
+				return;
+			}
+			
+			String key = matcher.group(0);
+			String source = "cache";
+			byte[] tile = cache.get(key);
+			if (tile == null)
+			{
+				CompletableFuture<byte[]> future = new CompletableFuture<>();
+				CompletableFuture<byte[]> inProgress = tilesInProgress.putIfAbsent(key, future);
+				if (inProgress != null)
+				{
+					source = "shared";
+					tile = inProgress.get();
+				}
+				else if ((tile = cache.get(key)) != null)
+				{
+					//the tile was finished between checking the cache and registering the render
+					tilesInProgress.remove(key);
+					future.complete(tile);
+				}
+				else
+				{
+					source = "render";
+					tile = renderTile(key, level, x, y, png, future);
+				}
+			}
+			
+			exchange.getResponseHeaders().set("Content-Type", png ? "image/png" : "application/octet-stream");
+			exchange.getResponseHeaders().set("Cache-Control", CACHE_CONTROL);
+			exchange.getResponseHeaders().set(TILE_SOURCE_HEADER, source);
+			exchange.sendResponseHeaders(200, tile.length);
+			try (OutputStream body = exchange.getResponseBody())
+			{
+				body.write(tile);
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			sendError(exchange, 503, "The server is shutting down");
+		}
+		catch (ExecutionException | RuntimeException e)
+		{
+			sendError(exchange, 500, "The tile could not be rendered");
+		}
+		finally
+		{
+			exchange.close();
+		}
+	}
+	
+	/**
+	 * Renders a tile, shares the result with any identical requests waiting on it and adds it to the cache
+	 * @param key The path of the tile, which identifies it
+	 * @param level The zoom level
+	 * @param x The column of the tile
+	 * @param y The row of the tile
+	 * @param png TRUE for a PNG image, FALSE for the raw iteration counts
+	 * @param future The future that identical requests wait on
+	 * @return The encoded tile
+	 */
+	private byte[] renderTile(String key, int level, long x, long y, boolean png, CompletableFuture<byte[]> future) throws IOException
+	{
+		try
+		{
+			Frame frame = frameRenderer.render(getTileViewport(level, x, y), null);
+			byte[] tile = png ? encodePng(frame) : encodeRaw(frame);
+			cache.put(key, tile);
+			future.complete(tile);
+			return tile;
+		}
+		catch (IOException | RuntimeException e)
+		{
+			future.completeExceptionally(e);
+			throw e;
+		}
+		finally
+		{
+			tilesInProgress.remove(key);
+		}
+	}
+	
+	/**
+	 * Returns the region of the complex plane covered by a tile
+	 * @param level The zoom level
+	 * @param x The column of the tile
+	 * @param y The row of the tile
+	 * @return The viewport of the tile
+	 */
+	public static Viewport getTileViewport(int level, long x, long y)
+	{
+		double magnification = Math.pow(2, level);
+		double tileRange = LEVEL_0_TILE_RANGE / magnification;
+		double centerX = WORLD_MIN_X + (x + 0.5) * tileRange;
+		double centerY = WORLD_MAX_Y - (y + 0.5) * tileRange;
+		
+		return new Viewport(centerX, centerY, tileRange, tileRange, TILE_SIZE, TILE_SIZE, MandelbrotSetIllustrator.calcIterations(magnification));
+	}
+	
+	private byte[] encodePng(Frame frame) throws IOException
+	{
+		int maxIterations = frame.viewport.maxIterations;
+		int[] palette = palettes.get(maxIterations);
+		if (palette == null)
+		{
+			Color[] colors = MandelbrotSetIllustrator.createMandelbrotColors(maxIterations);
+			palette = new int[colors.length];
+			for (int i = 0; i < colors.length; i++)
+			{
+				palette[i] = colors[i].getRGB();
+			}
+			palettes.put(maxIterations, palette);
+		}
+		
+		int[] pixels = new int[frame.iterations.length];
+		for (int i = 0; i < pixels.length; i++)
+		{
+			pixels[i] = palette[frame.iterations[i]];
+		}
+		
+		BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+		image.setRGB(0, 0, TILE_SIZE, TILE_SIZE, pixels, 0, TILE_SIZE);
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return out.toByteArray();
+	}
+	
+	private static byte[] encodeRaw(Frame frame)
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(4 * frame.iterations.length);
+		buffer.asIntBuffer().put(frame.iterations);
+		return buffer.array();
+	}
+	
+	private static void sendError(HttpExchange exchange, int status, String message) throws IOException
+	{
+		byte[] body = message.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody())
+		{
+			out.write(body);
+		}
+	}
+	
+	/**
+	 * Starts a tile server on the port given on the command line, or the default port
+	 * @param args The port to listen on
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		
+		TileServer tileServer = new TileServer(port, DEFAULT_CACHE_BYTES);
+		tileServer.start();
+		System.out.println("Serving tiles at http://localhost:" + tileServer.getPort() + TILES_PATH + "{level}/{x}/{y}.png");
+	}
+	
+	/**
+	 * Keeps the most recently used tiles, up to a total size in bytes
+	 */
+	private static class TileCache
+	{
+		private final long maxBytes;
+		private final LinkedHashMap<String, byte[]> tiles = new LinkedHashMap<>(16, 0.75f, true);
+		private long bytes = 0;
+		
+		public TileCache(long maxBytes)
+		{
+			this.maxBytes = maxBytes;
+		}
+		
+		public synchronized byte[] get(String key)
+		{
+			return tiles.get(key);
+		}
+		
+		public synchronized void put(String key, byte[] tile)
+		{
+			byte[] replaced = tiles.put(key, tile);
+			bytes += tile.length - (replaced != null ? replaced.length : 0);
+			
+			//drops the least recently used tiles until the cache fits
+			Iterator<byte[]> oldest = tiles.values().iterator();
+			while (bytes > maxBytes && oldest.hasNext())
+			{
+				bytes -= oldest.next().length;
+				oldest.remove();
+			}
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package mandelbrotset;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Puts load on a tile server and reports how many tiles it serves per second and how long requests take.
+ * Each client requests random tiles near a few points of interest, the way a viewer panning and zooming would,
+ * so that the cache and the sharing of identical requests are both exercised.
+ * Usage: TileServerBenchmark [clients] [requests per client] [base URL]. Without a URL, a server is started in-process.
+ */
+public class TileServerBenchmark
+{
+	private static final int DEFAULT_CLIENTS = 8;
+	private static final int DEFAULT_REQUESTS_PER_CLIENT = 50;
+	private static final int MAX_LEVEL = 6;
+	
+	private TileServerBenchmark() { }
+	
+	public static void main(String[] args) throws Exception
+	{
+		int clients = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_CLIENTS;
+		int requestsPerClient = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_REQUESTS_PER_CLIENT;
+		
+		TileServer server = null;
+		String baseUrl;
+		if (args.length > 2)
+		{
+			baseUrl = args[2];
+		}
+		else
+		{
+			server = new TileServer(0, 64L << 20);
+			server.start();
+			baseUrl = "http://localhost:" + server.getPort();
+		}
+		
+		try
+		{
+			run(baseUrl, clients, requestsPerClient);
+		}
+		finally
+		{
+			if (server != null) server.stop();
+		}
+	}
+	
+	/**
+	 * Runs the clients against the server and prints the results
+	 * @param baseUrl The address of the server
+	 * @param clients The number of clients making requests at the same time
+	 * @param requestsPerClient The number of tiles each client requests
+	 */
+	private static void run(final String baseUrl, int clients, final int requestsPerClient) throws InterruptedException, ExecutionException
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(clients);
+		List<Future<List<Result>>> futures = new ArrayList<>();
+		
+		long start = System.nanoTime();
+		for (int client = 0; client < clients; client++)
+		{
+			final long seed = client;
+			futures.add(executor.submit(new Callable<List<Result>>()
+			{
+				@Override
+				public List<Result> call() throws IOException
+				{
+					return runClient(baseUrl, requestsPerClient, new Random(seed));
+				}
+			}));
+		}
+		
+		List<Result> results = new ArrayList<>();
+		for (Future<List<Result>> future : futures)
+		{
+			results.addAll(future.get());
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		executor.shutdown();
+		
+		List<Long> latencies = new ArrayList<>();
+		int cached = 0;
+		int shared = 0;
+		for (Result result : results)
+		{
+			latencies.add(result.nanos);
+			if ("cache".equals(result.source)) cached++;
+			if ("shared".equals(result.source)) shared++;
+		}
+		Collections.sort(latencies);
+		
+		System.out.printf("%d tiles from %d clients in %.2f s: %.1f tiles per second%n", results.size(), clients, seconds, results.size() / seconds);
+		System.out.printf("latency p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+				percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6, latencies.get(latencies.size() - 1) / 1e6);
+		System.out.printf("%d from the cache, %d shared with an identical request in progress%n", cached, shared);
+	}
+	
+	/**
+	 * Requests tiles one after another, wandering around a point of interest and zooming in and out
+	 * @param baseUrl The address of the server
+	 * @param requests The number of tiles to request
+	 * @param random The source of the tiles to request
+	 * @return The result of each request
+	 */
+	private static List<Result> runClient(String baseUrl, int requests, Random random) throws IOException
+	{
+		List<Result> results = new ArrayList<>();
+		byte[] buffer = new byte[1 << 16];
+		
+		for (int request = 0; request < requests; request++)
+		{
+			int level = random.nextInt(MAX_LEVEL + 1);
+			
+			//tiles around the seahorse valley, where most viewers end up
+			long x = (long) (0.31 * (2L << level)) + random.nextInt(3) - 1;
+			long y = (long) (0.43 * (1L << level)) + random.nextInt(3) - 1;
+			x = Math.max(0, Math.min((2L << level) - 1, x));
+			y = Math.max(0, Math.min((1L << level) - 1, y));
+			String format = random.nextInt(4) == 0 ? "raw" : "png";
+			
+			URL url = new URL(baseUrl + "/tiles/" + level + "/" + x + "/" + y + "." + format);
+			long start = System.nanoTime();
+			HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+			if (connection.getResponseCode() != 200)
+			{
+				throw new IOException("Request for " + url + " failed with status " + connection.getResponseCode());
+			}
+			try (InputStream in = connection.getInputStream())
+			{
+				while (in.read(buffer) != -1) { }
+			}
+			results.add(new Result(System.nanoTime() - start, connection.getHeaderField(TileServer.TILE_SOURCE_HEADER)));
+		}
+		return results;
+	}
+	
+	private static long percentile(List<Long> sortedValues, double fraction)
+	{
+		int index = (int) Math.ceil(fraction * sortedValues.size()) - 1;
+		return sortedValues.get(Math.max(0, index));
+	}
+	
+	/**
+	 * The time taken by a single request, and where the server found the tile
+	 */
+	private static class Result
+	{
+		public final long nanos;
+		public final String source;
+		
+		public Result(long nanos, String source)
+		{
+			this.nanos = nanos;
+			this.source = source;
+		}
+	}
+}
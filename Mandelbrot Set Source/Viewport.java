@@ -0,0 +1,147 @@
+package mandelbrotset;
+
+/**
+ * Describes the region of the complex plane covered by an image and the pixels it is drawn with.
+ * Pixels are mapped to complex numbers exactly the way the illustrator does it, so an image rendered
+ * from a viewport matches the illustrator's own frames.
+ */
+public class Viewport
+{
+	// The complex number at the centre of the image
+	public final double centerX;
+	public final double centerY;
+	
+	// The size of the region of the complex plane covered by the image
+	public final double xRange;
+	public final double yRange;
+	
+	// The size of the image in pixels
+	public final int width;
+	public final int height;
+	
+	// The maximum number of iterations used to decide whether a point escapes
+	public final int maxIterations;
+	
+	private final double pixelRatioX;
+	private final double pixelRatioY;
+	private final double xStagger;
+	private final double yStagger;
+	
+	/**
+	 * Constructor
+	 * @param centerX The real component at the centre of the image
+	 * @param centerY The imaginary component at the centre of the image
+	 * @param xRange The width of the region on the complex plane
+	 * @param yRange The height of the region on the complex plane
+	 * @param width The width of the image in pixels
+	 * @param height The height of the image in pixels
+	 * @param maxIterations The maximum number of iterations
+	 */
+	public Viewport(double centerX, double centerY, double xRange, double yRange, int width, int height, int maxIterations)
+	{
+		this.centerX = centerX;
+		this.centerY = centerY;
+		this.xRange = xRange;
+		this.yRange = yRange;
+		this.width = width;
+		this.height = height;
+		this.maxIterations = maxIterations;
+		
+		pixelRatioX = width / xRange;
+		pixelRatioY = height / yRange;
+		xStagger = width / 2 - centerX * pixelRatioX;
+		yStagger = height / 2 + centerY * pixelRatioY;
+	}
+	
+	/**
+	 * Returns the real component of the complex number at a horizontal pixel position
+	 * @param x The x-coordinate of the pixel
+	 * @return The real component
+	 */
+	public double getReal(double x)
+	{
+		return (x - xStagger) / pixelRatioX;
+	}
+	
+	/**
+	 * Returns the imaginary component of the complex number at a vertical pixel position
+	 * @param y The y-coordinate of the pixel
+	 * @return The imaginary component
+	 */
+	public double getImaginary(double y)
+	{
+		return -(y - yStagger) / pixelRatioY;
+	}
+	
+	/**
+	 * Returns the real component at a horizontal pixel position minus the real component at the centre.
+	 * Unlike subtracting the two, this keeps every digit however deep the view is.
+	 * @param x The x-coordinate of the pixel
+	 * @return The offset of the real component from the centre
+	 */
+	public double getRealOffset(double x)
+	{
+		return (x - width / 2) / pixelRatioX;
+	}
+	
+	/**
+	 * Returns the imaginary component at a vertical pixel position minus the imaginary component at the centre.
+	 * Unlike subtracting the two, this keeps every digit however deep the view is.
+	 * @param y The y-coordinate of the pixel
+	 * @return The offset of the imaginary component from the centre
+	 */
+	public double getImaginaryOffset(double y)
+	{
+		return -(y - height / 2) / pixelRatioY;
+	}
+	
+	/**
+	 * Returns the horizontal pixel position of a real component. This is the inverse of getReal.
+	 * @param a The real component
+	 * @return The x-coordinate, which may lie outside the image
+	 */
+	public double getX(double a)
+	{
+		return a * pixelRatioX + xStagger;
+	}
+	
+	/**
+	 * Returns the vertical pixel position of an imaginary component. This is the inverse of getImaginary.
+	 * @param b The imaginary component
+	 * @return The y-coordinate, which may lie outside the image
+	 */
+	public double getY(double b)
+	{
+		return yStagger - b * pixelRatioY;
+	}
+	
+	/**
+	 * Returns the same region of the complex plane drawn with a different number of pixels
+	 * @param width The new width in pixels
+	 * @param height The new height in pixels
+	 * @return The resized viewport
+	 */
+	public Viewport resize(int width, int height)
+	{
+		return new Viewport(centerX, centerY, xRange, yRange, width, height, maxIterations);
+	}
+	
+	/**
+	 * Two viewports are equal if they show exactly the same region with the same pixels and maximum number of iterations
+	 */
+	@Override
+	public boolean equals(Object other)
+	{
+		if (!(other instanceof Viewport)) return false;
+		
+		Viewport viewport = (Viewport) other;
+		return centerX == viewport.centerX && centerY == viewport.centerY && xRange == viewport.xRange && yRange == viewport.yRange
+				&& width == viewport.width && height == viewport.height && maxIterations == viewport.maxIterations;
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return Double.hashCode(centerX) * 31 + Double.hashCode(centerY) * 17 + Double.hashCode(xRange) + maxIterations;
+	}
+}
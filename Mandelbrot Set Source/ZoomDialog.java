@@ -12,14 +12,27 @@ import java.awt.Container;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.swing.JButton;
 import javax.swing.JDialog;
+import javax.swing.JFileChooser;
 import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JSlider;
 import javax.swing.JTextField;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.border.LineBorder;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
 
 @SuppressWarnings("serial")
@@ -39,6 +52,37 @@ public class ZoomDialog extends JDialog implements SwingConstants {
     private static final String PREVIOUS_FRAME_STR = "Previous Frame";
     private static final String NEXT_FRAME_STR = "Next Frame";
     private static final String LAST_FRAME_STR = "Last Frame";
+    private static final String BOUNDARY_DETAIL_ON_STR = "Boundary Detail: On";
+    private static final String BOUNDARY_DETAIL_OFF_STR = "Boundary Detail: Off";
+    private static final String KEYFRAME_ZOOM_ON_STR = "Keyframe Zoom: On";
+    private static final String KEYFRAME_ZOOM_OFF_STR = "Keyframe Zoom: Off";
+    private static final String REAL_TIME_ZOOM_ON_STR = "Real-Time Zoom: On";
+    private static final String REAL_TIME_ZOOM_OFF_STR = "Real-Time Zoom: Off";
+    private static final String STATISTICS_STR = "Statistics";
+    private static final String RENDER_COST_ON_STR = "Render Cost: On";
+    private static final String RENDER_COST_OFF_STR = "Render Cost: Off";
+    private static final String SAVE_PROFILE_STR = "Save Render Profile";
+    private static final String PROFILE_TITLE = "Render Profile";
+    private static final String PROFILE_SAVED_MESSAGE = "The render profile was saved to ";
+    private static final String PROFILE_FAILED_MESSAGE = "The render profile could not be saved: ";
+    private static final String ZOOM_FAILED_TITLE = "Zoom";
+    private static final String ZOOM_FAILED_MESSAGE = "The zoom could not be finished: ";
+    private static final String STATISTICS_TITLE = "Render Statistics";
+    private static final String SAVE_POSTER_STR = "Save Poster";
+    private static final String ENTER_POSTER_HEIGHT = "Enter the height of the poster in pixels: ";
+    private static final String POSTER_TITLE = "Poster";
+    private static final String POSTER_SAVED_MESSAGE = "The poster was saved to ";
+    private static final String POSTER_FAILED_MESSAGE = "The poster could not be saved: ";
+    private static final String SUGGEST_TARGET_STR = "Suggest Target";
+    private static final String TARGET_TITLE = "Suggest Target";
+    private static final String NO_TARGET_MESSAGE = "Nothing in the current view looks worth zooming in on.";
+    private static final String SAVE_SESSION_STR = "Save Session";
+    private static final String LOAD_SESSION_STR = "Load Session";
+    private static final String SESSION_TITLE = "Session";
+    private static final String INCLUDE_FRAMES_PROMPT = "Include the rendered frames? This makes loading much faster but the file larger.";
+    private static final String SESSION_SAVED_MESSAGE = "The session was saved to ";
+    private static final String SESSION_LOADED_MESSAGE = "The session was loaded from ";
+    private static final String SESSION_FAILED_MESSAGE = "The session could not be saved or loaded: ";
     
     private static final int VISIBLE_WIDTH = 700;
     private static final int VISIBLE_HEIGHT = 400;
@@ -49,6 +93,16 @@ public class ZoomDialog extends JDialog implements SwingConstants {
     private static final Color BACKGROUND_COLOR = Color.BLACK;
     private static final Color FOREGROUND_COLOR = Color.WHITE;
     
+    /**
+     * The time in milliseconds the frame slider must stay still before the frame is loaded at full resolution
+     */
+    private static final int SCRUB_SETTLE_DELAY = 150;
+    
+    /**
+     * The time in milliseconds between samples of the progress of a zoom
+     */
+    private static final int PROGRESS_SAMPLE_INTERVAL = 100;
+    
     private MandelbrotSetIllustrator illustrator;
     
     private final Button previousFrameButton;
@@ -57,6 +111,19 @@ public class ZoomDialog extends JDialog implements SwingConstants {
     private final Button replayAllButton;
     private final Button replayLastZoomButton;
     private final JButton zoomButton;
+    private final Button suggestTargetButton;
+    private final EditButton savePosterButton;
+    private final Button saveSessionButton;
+    private final Button loadSessionButton;
+    private final Button boundaryDetailButton;
+    private final Button keyframeZoomButton;
+    private final Button realTimeZoomButton;
+    private final Button statisticsButton;
+    private final Button renderCostButton;
+    private final Button saveProfileButton;
+    private final JSlider frameSlider;
+    private final Timer scrubSettleTimer;
+    private final Timer progressTimer;
     private final JPanel buttonsPanel;
     private final JPanel zoomPointPanel;
     private final JPanel zoomParametersPanel;
@@ -80,6 +147,14 @@ public class ZoomDialog extends JDialog implements SwingConstants {
     private final JLabel frameDelayField;
     private final JLabel numFramesField;
     
+    /**
+     * The targets suggested at the magnification they were found at, so that asking again moves on to the next best target.
+     * Showing a target moves the plot towards it, so the targets are kept until the user picks another point or zooms.
+     */
+    private List<TargetExplorer.Target> suggestedTargets = new ArrayList<>();
+    private int nextSuggestedTarget = 0;
+    private double suggestedTargetsMagnification = Double.NaN;
+    
     /**
      * Constructor
      * @param msi The MandelbrotSetIllustrator object which the zoom dialog will be paired with
@@ -143,6 +218,122 @@ public class ZoomDialog extends JDialog implements SwingConstants {
 				requestZoom();
 			}
         };
+        suggestTargetButton = new Button(SUGGEST_TARGET_STR)
+        {
+			@Override
+			protected void buttonPressed()
+			{
+				suggestTarget();
+			}
+        };
+        savePosterButton = new EditButton(SAVE_POSTER_STR, ENTER_POSTER_HEIGHT)
+        {
+			@Override
+			protected void setValue(double value) throws InvalidEntryException 
+			{
+				if (value < 1) throw new InvalidEntryException(POSITIVE_VALUE_TITLE, POSITIVE_VALUE_MESSAGE);
+				
+				savePoster((int)value);
+			}
+        };
+        boundaryDetailButton = new Button(BOUNDARY_DETAIL_OFF_STR)
+        {
+			@Override
+			protected void buttonPressed() 
+			{
+				boolean highlightBoundary = !illustrator.isHighlightingBoundary();
+				illustrator.setHighlightBoundary(highlightBoundary);
+				setText(highlightBoundary ? BOUNDARY_DETAIL_ON_STR : BOUNDARY_DETAIL_OFF_STR);
+			}
+        };
+        keyframeZoomButton = new Button(KEYFRAME_ZOOM_OFF_STR)
+        {
+			@Override
+			protected void buttonPressed() 
+			{
+				boolean keyframeZoom = !illustrator.isKeyframeZoom();
+				illustrator.setKeyframeZoom(keyframeZoom);
+				setText(keyframeZoom ? KEYFRAME_ZOOM_ON_STR : KEYFRAME_ZOOM_OFF_STR);
+			}
+        };
+        realTimeZoomButton = new Button(REAL_TIME_ZOOM_OFF_STR)
+        {
+			@Override
+			protected void buttonPressed() 
+			{
+				boolean realTimeZoom = !illustrator.isRealTimeZoom();
+				illustrator.setRealTimeZoom(realTimeZoom);
+				setText(realTimeZoom ? REAL_TIME_ZOOM_ON_STR : REAL_TIME_ZOOM_OFF_STR);
+			}
+        };
+        statisticsButton = new Button(STATISTICS_STR)
+        {
+			@Override
+			protected void buttonPressed() 
+			{
+				JOptionPane.showMessageDialog(ZoomDialog.this, illustrator.getStatistics().toString(), STATISTICS_TITLE, JOptionPane.INFORMATION_MESSAGE);
+			}
+        };
+        renderCostButton = new Button(RENDER_COST_OFF_STR)
+        {
+			@Override
+			protected void buttonPressed() 
+			{
+				boolean showRenderCost = !illustrator.isShowingRenderCost();
+				illustrator.setShowRenderCost(showRenderCost);
+				setText(showRenderCost ? RENDER_COST_ON_STR : RENDER_COST_OFF_STR);
+			}
+        };
+        saveProfileButton = new Button(SAVE_PROFILE_STR)
+        {
+			@Override
+			protected void buttonPressed() 
+			{
+				saveRenderProfile();
+			}
+        };
+        saveSessionButton = new Button(SAVE_SESSION_STR)
+        {
+			@Override
+			protected void buttonPressed() 
+			{
+				saveSession();
+			}
+        };
+        loadSessionButton = new Button(LOAD_SESSION_STR)
+        {
+			@Override
+			protected void buttonPressed() 
+			{
+				loadSession();
+			}
+        };
+        frameSlider = new JSlider(0, 0, 0);
+        frameSlider.addChangeListener(new ChangeListener()
+        {
+			@Override
+			public void stateChanged(ChangeEvent e)
+			{
+				scrubFrames();
+			}
+        });
+        scrubSettleTimer = new Timer(SCRUB_SETTLE_DELAY, new ActionListener()
+        {
+			@Override
+			public void actionPerformed(ActionEvent e)
+			{
+				illustrator.displayFrame(frameSlider.getValue());
+			}
+        });
+        scrubSettleTimer.setRepeats(false);
+        progressTimer = new Timer(PROGRESS_SAMPLE_INTERVAL, new ActionListener()
+        {
+			@Override
+			public void actionPerformed(ActionEvent e)
+			{
+				updateProgress(illustrator.getProgress());
+			}
+        });
         buttonsPanel = new JPanel();
         zoomPointPanel = new JPanel();
         zoomParametersPanel = new JPanel();
@@ -291,7 +482,27 @@ public class ZoomDialog extends JDialog implements SwingConstants {
         addToGridBag(lastFrameButton, 		buttonsPanel, 2, 0, baseConstraints, -1, -1, -1);
         
         //seconds row of buttons
-        addToGridBag(zoomButton, 			buttonsPanel, 0, 1, baseConstraints, -1, 3, -1);
+        addToGridBag(zoomButton, 			buttonsPanel, 0, 1, baseConstraints, -1, 2, -1);
+        addToGridBag(suggestTargetButton, 	buttonsPanel, 2, 1, baseConstraints, -1, 1, -1);
+        
+        //third row of buttons
+        addToGridBag(savePosterButton, 		buttonsPanel, 0, 2, baseConstraints, -1, 1, -1);
+        addToGridBag(boundaryDetailButton, 	buttonsPanel, 1, 2, baseConstraints, -1, 1, -1);
+        addToGridBag(keyframeZoomButton, 	buttonsPanel, 2, 2, baseConstraints, -1, 1, -1);
+        
+        //fourth row of buttons
+        addToGridBag(saveSessionButton, 	buttonsPanel, 0, 3, baseConstraints, -1, 1, -1);
+        addToGridBag(loadSessionButton, 	buttonsPanel, 1, 3, baseConstraints, -1, 1, -1);
+        addToGridBag(realTimeZoomButton, 	buttonsPanel, 2, 3, baseConstraints, -1, 1, -1);
+        
+        //fifth row of buttons
+        addToGridBag(statisticsButton, 		buttonsPanel, 0, 4, baseConstraints, -1, 1, -1);
+        addToGridBag(renderCostButton, 		buttonsPanel, 1, 4, baseConstraints, -1, 1, -1);
+        addToGridBag(saveProfileButton, 	buttonsPanel, 2, 4, baseConstraints, -1, 1, -1);
+        
+        //slider for scrubbing through the frames
+        frameSlider.setBackground(BACKGROUND_COLOR);
+        addToGridBag(frameSlider, 			buttonsPanel, 0, 5, baseConstraints, -1, 3, -1);
 	}
     
     /**
@@ -370,9 +581,7 @@ public class ZoomDialog extends JDialog implements SwingConstants {
     	JLabel frameDelayLabel = createCustomLabel("Delay between frames: ", true);
     	JLabel framesPerZoomLabel = createCustomLabel("Number of frames: ", true);
     	
-    	zoomPerAnimationField.setText(illustrator.getZoomInterval() + "x");
-    	frameDelayField.setText(illustrator.getFrameDelay() + "");
-    	numFramesField.setText(illustrator.getFramesPerZoom() + "");
+    	updateZoomParameters();
     	
     	int gridy;
     	
@@ -436,6 +645,16 @@ public class ZoomDialog extends JDialog implements SwingConstants {
     	bEntryMaxLabel.setText(" < " + illustrator.getMaxY());
     }
     
+    /**
+     * Updates the zoom parameters that are displayed in the window to match the illustrator
+     */
+    public void updateZoomParameters()
+    {
+    	zoomPerAnimationField.setText(illustrator.getZoomInterval() + "x");
+    	frameDelayField.setText(illustrator.getFrameDelay() + "");
+    	numFramesField.setText(illustrator.getFramesPerZoom() + "");
+    }
+    
     /**
      * Makes the edit buttons become unusable while the program is generating images.
      */
@@ -443,26 +662,37 @@ public class ZoomDialog extends JDialog implements SwingConstants {
     {
     	zoomButton.setText("Generating images...");
     	zoomButton.setEnabled(false);
+    	suggestTargetButton.setEnabled(false);
+    	progressTimer.start();
     	aEditButton.setEnabled(false);
     	bEditButton.setEnabled(false);
     	previousFrameButton.setEnabled(false);
     	nextFrameButton.setEnabled(false);
     	lastFrameButton.setEnabled(false);
+    	frameSlider.setEnabled(false);
+    	scrubSettleTimer.stop();
     	replayAllButton.setEnabled(false);
     	replayLastZoomButton.setEnabled(false);
     	editframeDelayButton.setEnabled(false);
     	editNumFramesButton.setEnabled(false);
     	editZoomPerAnimationButton.setEnabled(false);
+    	boundaryDetailButton.setEnabled(false);
+    	keyframeZoomButton.setEnabled(false);
+    	realTimeZoomButton.setEnabled(false);
+    	saveSessionButton.setEnabled(false);
+    	loadSessionButton.setEnabled(false);
     }
     
     /**
-     * Displays the progress of the image generation
-     * @param progress
+     * Displays the progress of the image generation, with an estimate of the time left
+     * @param progress The progress of the zoom being generated
      */
-    public void updateProgress(double progress)
+    private void updateProgress(RenderProgress progress)
     {
-    	int percent = (int)(progress * 100);
-    	zoomButton.setText("Generating images..." + percent + "%");
+    	int percent = (int)(progress.getFraction() * 100);
+    	long remainingMillis = progress.getRemainingMillis();
+    	String remaining = (remainingMillis < 0) ? "" : " (" + (remainingMillis + 999) / 1000 + "s left)";
+    	zoomButton.setText("Generating images..." + percent + "%" + remaining);
     }
     
     /**
@@ -470,13 +700,21 @@ public class ZoomDialog extends JDialog implements SwingConstants {
      */
     public void exitGeneratingState()
     {
+    	progressTimer.stop();
     	zoomButton.setText(ZOOM_BUTTON_STR);
     	zoomButton.setEnabled(true);
+    	suggestTargetButton.setEnabled(true);
     	aEditButton.setEnabled(true);
     	bEditButton.setEnabled(true);
     	editframeDelayButton.setEnabled(true);
     	editNumFramesButton.setEnabled(true);
     	editZoomPerAnimationButton.setEnabled(true);
+    	boundaryDetailButton.setEnabled(true);
+    	keyframeZoomButton.setEnabled(true);
+    	realTimeZoomButton.setEnabled(true);
+    	saveSessionButton.setEnabled(true);
+    	loadSessionButton.setEnabled(true);
+    	frameSlider.setEnabled(true);
     	repaint();
     	revalidate();
     }
@@ -490,6 +728,18 @@ public class ZoomDialog extends JDialog implements SwingConstants {
     {
     	aEntryField.setText(a + "");
     	bEntryField.setText(b + "");
+    	
+    	//a point other than the target last shown was picked, so the suggestions are found again next time
+    	if (nextSuggestedTarget > 0)
+    	{
+    		TargetExplorer.Target shown = suggestedTargets.get(nextSuggestedTarget - 1);
+    		if (a != shown.centerX || b != shown.centerY)
+    		{
+    			suggestedTargets = new ArrayList<>();
+    			nextSuggestedTarget = 0;
+    			suggestedTargetsMagnification = Double.NaN;
+    		}
+    	}
     }
     
     /**
@@ -532,6 +782,21 @@ public class ZoomDialog extends JDialog implements SwingConstants {
     	illustrator.displayFrame(illustrator.getDisplayedFrame() + 1);
     }
 
+    /**
+     * Shows the frame the slider points at from the frame pyramid while the slider moves,
+     * and loads it at full resolution once the slider has stayed still for the settle delay
+     */
+    private void scrubFrames()
+    {
+    	int frame = frameSlider.getValue();
+    	
+    	//the slider is also moved to follow frames displayed by other means
+    	if (frame == illustrator.getDisplayedFrame() && illustrator.isDisplayingFullResolution()) return;
+    	
+    	illustrator.scrubToFrame(frame);
+    	scrubSettleTimer.restart();
+    }
+    
     /**
      * Displays the last generated frame
      */
@@ -540,6 +805,247 @@ public class ZoomDialog extends JDialog implements SwingConstants {
     	illustrator.displayFrame(illustrator.getLastFrame());
     }
     
+    /**
+     * Moves the zoom point to the next best target in the current view. The view is probed in the background
+     * the first time, and the targets found are stepped through until the user picks another point or zooms.
+     */
+    private void suggestTarget()
+    {
+    	final double magnification = illustrator.getCurrentMagnification();
+    	if (magnification == suggestedTargetsMagnification && nextSuggestedTarget < suggestedTargets.size())
+    	{
+    		showSuggestedTarget();
+    		return;
+    	}
+    	
+    	suggestTargetButton.setEnabled(false);
+    	
+    	new Thread("Target Suggester")
+    	{
+    		@Override
+    		public void run()
+    		{
+    			List<TargetExplorer.Target> targets;
+    			try
+    			{
+    				targets = illustrator.suggestTargets();
+    			}
+    			catch (InterruptedException e)
+    			{
+    				targets = new ArrayList<>();
+    			}
+    			
+    			final List<TargetExplorer.Target> result = targets;
+    			SwingUtilities.invokeLater(new Runnable()
+    			{
+    				@Override
+    				public void run()
+    				{
+    					//a zoom may have started while probing, and re-enables the button once it finishes
+    					suggestTargetButton.setEnabled(zoomButton.isEnabled());
+    					suggestedTargets = result;
+    					suggestedTargetsMagnification = magnification;
+    					nextSuggestedTarget = 0;
+    					
+    					if (result.isEmpty())
+    					{
+    						JOptionPane.showMessageDialog(ZoomDialog.this, NO_TARGET_MESSAGE, TARGET_TITLE, JOptionPane.INFORMATION_MESSAGE);
+    					}
+    					else if (zoomButton.isEnabled())
+    					{
+    						showSuggestedTarget();
+    					}
+    				}
+    			});
+    		}
+    	}.start();
+    }
+    
+    /**
+     * Moves the zoom point to the next of the suggested targets
+     */
+    private void showSuggestedTarget()
+    {
+    	TargetExplorer.Target target = suggestedTargets.get(nextSuggestedTarget++);
+    	illustrator.setCenter(target.centerX, target.centerY);
+    }
+    
+    /**
+     * Asks the user where to save a poster of the current image, then renders it in the background
+     * @param posterHeight The height of the poster in pixels
+     */
+    private void savePoster(final int posterHeight)
+    {
+    	JFileChooser fileChooser = new JFileChooser();
+    	fileChooser.setSelectedFile(new File("mandelbrot-poster.png"));
+    	if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+    	
+    	final File file = fileChooser.getSelectedFile();
+    	savePosterButton.setEnabled(false);
+    	
+    	new Thread("Poster Renderer")
+    	{
+    		@Override
+    		public void run()
+    		{
+    			String message;
+    			int messageType;
+    			try
+    			{
+    				illustrator.renderPoster(posterHeight, file);
+    				message = POSTER_SAVED_MESSAGE + file.getPath();
+    				messageType = JOptionPane.INFORMATION_MESSAGE;
+    			}
+    			catch (IOException | InterruptedException | RuntimeException e)
+    			{
+    				message = POSTER_FAILED_MESSAGE + e.getMessage();
+    				messageType = JOptionPane.ERROR_MESSAGE;
+    			}
+    			showResult(savePosterButton, POSTER_TITLE, message, messageType);
+    		}
+    	}.start();
+    }
+    
+    /**
+     * Asks the user where to save the session, and whether to include the rendered frames, then saves it in the background
+     */
+    private void saveSession()
+    {
+    	JFileChooser fileChooser = new JFileChooser();
+    	fileChooser.setSelectedFile(new File("mandelbrot-session.mset"));
+    	if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+    	
+    	int answer = JOptionPane.showConfirmDialog(this, INCLUDE_FRAMES_PROMPT, SESSION_TITLE, JOptionPane.YES_NO_CANCEL_OPTION);
+    	if (answer == JOptionPane.CANCEL_OPTION || answer == JOptionPane.CLOSED_OPTION) return;
+    	
+    	final File file = fileChooser.getSelectedFile();
+    	final boolean includeFrames = (answer == JOptionPane.YES_OPTION);
+    	saveSessionButton.setEnabled(false);
+    	
+    	new Thread("Session Writer")
+    	{
+    		@Override
+    		public void run()
+    		{
+    			try
+    			{
+    				illustrator.saveSession(file, includeFrames);
+    				showResult(saveSessionButton, SESSION_TITLE, SESSION_SAVED_MESSAGE + file.getPath(), JOptionPane.INFORMATION_MESSAGE);
+    			}
+    			catch (IOException | RuntimeException e)
+    			{
+    				showResult(saveSessionButton, SESSION_TITLE, SESSION_FAILED_MESSAGE + e.getMessage(), JOptionPane.ERROR_MESSAGE);
+    			}
+    		}
+    	}.start();
+    }
+    
+    /**
+     * Asks the user which session to load, then loads it in the background
+     */
+    private void loadSession()
+    {
+    	JFileChooser fileChooser = new JFileChooser();
+    	if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+    	
+    	final File file = fileChooser.getSelectedFile();
+    	enterGeneratingState();
+    	
+    	new Thread("Session Reader")
+    	{
+    		@Override
+    		public void run()
+    		{
+    			String message;
+    			int messageType;
+    			try
+    			{
+    				illustrator.loadSession(file);
+    				message = SESSION_LOADED_MESSAGE + file.getPath();
+    				messageType = JOptionPane.INFORMATION_MESSAGE;
+    			}
+    			catch (IOException | RuntimeException e)
+    			{
+    				message = SESSION_FAILED_MESSAGE + e.getMessage();
+    				messageType = JOptionPane.ERROR_MESSAGE;
+    			}
+    			
+    			final String result = message;
+    			final int resultType = messageType;
+    			SwingUtilities.invokeLater(new Runnable()
+    			{
+    				@Override
+    				public void run()
+    				{
+    					exitGeneratingState();
+    					updateZoomParameters();
+    					updateEntryBounds();
+    					illustrator.displayFrame(illustrator.getLastFrame());
+    					JOptionPane.showMessageDialog(ZoomDialog.this, result, SESSION_TITLE, resultType);
+    				}
+    			});
+    		}
+    	}.start();
+    }
+    
+    /**
+     * Asks for a file and saves the profile of the displayed frame to it as comma-separated values
+     */
+    private void saveRenderProfile()
+    {
+    	JFileChooser fileChooser = new JFileChooser();
+    	fileChooser.setSelectedFile(new File("mandelbrot-profile.csv"));
+    	if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+    	
+    	File file = fileChooser.getSelectedFile();
+    	try
+    	{
+    		illustrator.saveRenderProfile(file);
+    		JOptionPane.showMessageDialog(this, PROFILE_SAVED_MESSAGE + file.getPath(), PROFILE_TITLE, JOptionPane.INFORMATION_MESSAGE);
+    	}
+    	catch (IOException e)
+    	{
+    		JOptionPane.showMessageDialog(this, PROFILE_FAILED_MESSAGE + e.getMessage(), PROFILE_TITLE, JOptionPane.ERROR_MESSAGE);
+    	}
+    }
+    
+    /**
+     * Tells the user how a background task went and re-enables the button that started it
+     * @param button The button that started the task
+     * @param title The title of the message
+     * @param message The message to show
+     * @param messageType The type of message, as used by JOptionPane
+     */
+    private void showResult(final JButton button, final String title, final String message, final int messageType)
+    {
+    	SwingUtilities.invokeLater(new Runnable()
+    	{
+    		@Override
+    		public void run()
+    		{
+    			button.setEnabled(true);
+    			JOptionPane.showMessageDialog(ZoomDialog.this, message, title, messageType);
+    		}
+    	});
+    }
+    
+    /**
+     * Tells the user that a zoom could not be finished. The frames rendered so far are kept.
+     * @param cause The reason the zoom failed
+     */
+    public void reportZoomFailure(Throwable cause)
+    {
+    	final String message = ZOOM_FAILED_MESSAGE + cause;
+    	SwingUtilities.invokeLater(new Runnable()
+    	{
+    		@Override
+    		public void run()
+    		{
+    			JOptionPane.showMessageDialog(ZoomDialog.this, message, ZOOM_FAILED_TITLE, JOptionPane.ERROR_MESSAGE);
+    		}
+    	});
+    }
+    
     /**
      * Sends a zoom request to the illustrator
      */
@@ -562,5 +1068,8 @@ public class ZoomDialog extends JDialog implements SwingConstants {
 		boolean isNotLastFrame = (displayedFrame != lastFrame);
 		nextFrameButton.setEnabled(isNotLastFrame);
 		lastFrameButton.setEnabled(isNotLastFrame);
+		
+		//set together, so that the slider never holds a value that is not the displayed frame
+		frameSlider.getModel().setRangeProperties(displayedFrame, 0, 0, lastFrame, frameSlider.getValueIsAdjusting());
 	}
 }